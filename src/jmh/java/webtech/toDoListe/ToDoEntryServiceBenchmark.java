@@ -0,0 +1,113 @@
+package webtech.toDoListe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Misst den ToDoEntryService samt Repository gegen eine H2-In-Memory-DB.
+ * cacheSize=0 schaltet den Cache praktisch ab, damit get den DB-Pfad misst.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ToDoEntryServiceBenchmark {
+
+    static final String OWNER = "benchmark";
+
+    @Param({"100", "10000"})
+    int entries;
+
+    @Param({"0", "10000"})
+    int cacheSize;
+
+    ConfigurableApplicationContext context;
+    ToDoEntryService service;
+    List<Long> ids;
+
+    @Setup(Level.Trial)
+    public void startContext() {
+        context = new SpringApplicationBuilder(ToDoListeApplication.class)
+                .web(WebApplicationType.NONE)
+                .run("--spring.datasource.url=jdbc:h2:mem:jmh;DB_CLOSE_DELAY=-1",
+                        "--spring.jpa.hibernate.ddl-auto=create-drop",
+                        "--app.cache.todos.max-size=" + cacheSize,
+                        "--logging.level.root=WARN");
+        service = context.getBean(ToDoEntryService.class);
+
+        ids = new ArrayList<>(entries);
+        List<ToDoEntry> batch = new ArrayList<>();
+        for (int i = 0; i < entries; i++) {
+            batch.add(newEntry(i));
+            if (batch.size() == ToDoEntryService.MAX_BATCH_SIZE || i == entries - 1) {
+                service.saveAll(OWNER, batch).forEach(e -> ids.add(e.getId()));
+                batch = new ArrayList<>();
+            }
+        }
+    }
+
+    @TearDown(Level.Trial)
+    public void stopContext() {
+        context.close();
+    }
+
+    @Benchmark
+    public ToDoEntry get() {
+        return service.get(OWNER, randomId());
+    }
+
+    @Benchmark
+    public List<ToDoEntry> getAll() {
+        return service.getAll(OWNER);
+    }
+
+    @Benchmark
+    public ToDoEntry save() {
+        return service.save(OWNER, newEntry(0));
+    }
+
+    @Benchmark
+    public ToDoEntry update() {
+        return service.update(OWNER, randomId(), newEntry(1), null);
+    }
+
+    @Benchmark
+    public void delete(PendingDelete pending) {
+        service.delete(OWNER, pending.id, null);
+    }
+
+    // eigener State, damit nur der delete-Benchmark vor jedem Aufruf einen Eintrag anlegt
+    @State(Scope.Thread)
+    public static class PendingDelete {
+        Long id;
+
+        @Setup(Level.Invocation)
+        public void create(ToDoEntryServiceBenchmark benchmark) {
+            id = benchmark.service.save(OWNER, newEntry(-1)).getId();
+        }
+    }
+
+    private Long randomId() {
+        return ids.get(ThreadLocalRandom.current().nextInt(ids.size()));
+    }
+
+    private static ToDoEntry newEntry(int i) {
+        return new ToDoEntry("Benchmark " + i, "Beschreibung " + i, LocalDateTime.now().plusDays(1), false);
+    }
+}
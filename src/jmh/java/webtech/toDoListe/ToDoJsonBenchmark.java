@@ -0,0 +1,79 @@
+package webtech.toDoListe;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.dataformat.cbor.CBORFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.springframework.http.converter.json.Jackson2ObjectMapperBuilder;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+// Jackson-Kosten für ToDo-Listen, mit denselben Defaults wie der ObjectMapper von Spring Boot
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+public class ToDoJsonBenchmark {
+
+    private static final TypeReference<List<ToDoEntry>> LIST_TYPE = new TypeReference<>() {
+    };
+
+    @Param({"1", "100", "10000"})
+    int size;
+
+    ObjectMapper mapper;
+    ObjectMapper cborMapper;
+    List<ToDoEntry> todos;
+    List<ToDoSummary> summaries;
+    byte[] json;
+
+    @Setup
+    public void setup() throws Exception {
+        mapper = Jackson2ObjectMapperBuilder.json().build();
+        cborMapper = Jackson2ObjectMapperBuilder.json().factory(new CBORFactory()).build();
+        todos = new ArrayList<>(size);
+        for (int i = 0; i < size; i++) {
+            ToDoEntry todo = new ToDoEntry("Aufgabe " + i, "Beschreibung der Aufgabe " + i,
+                    LocalDateTime.now().plusDays(1), i % 2 == 0);
+            todo.setId((long) i);
+            todo.setVersion(0L);
+            todo.setChangeSeq((long) i);
+            todos.add(todo);
+        }
+        json = mapper.writeValueAsBytes(todos);
+        summaries = todos.stream()
+                .map(t -> new ToDoSummary(t.getId(), t.getName(), t.getDueTime(), t.isDone(), t.getVersion()))
+                .toList();
+    }
+
+    @Benchmark
+    public byte[] serialize() throws Exception {
+        return mapper.writeValueAsBytes(todos);
+    }
+
+    // Listenansicht ohne Beschreibung (GET /todos?view=summary)
+    @Benchmark
+    public byte[] serializeSummary() throws Exception {
+        return mapper.writeValueAsBytes(summaries);
+    }
+
+    // Accept: application/cbor
+    @Benchmark
+    public byte[] serializeCbor() throws Exception {
+        return cborMapper.writeValueAsBytes(todos);
+    }
+
+    @Benchmark
+    public List<ToDoEntry> deserialize() throws Exception {
+        return mapper.readValue(json, LIST_TYPE);
+    }
+}
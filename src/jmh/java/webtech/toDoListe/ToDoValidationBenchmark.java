@@ -0,0 +1,53 @@
+package webtech.toDoListe;
+
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validation;
+import jakarta.validation.Validator;
+import jakarta.validation.ValidatorFactory;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+
+import java.time.LocalDateTime;
+import java.util.Set;
+import java.util.concurrent.TimeUnit;
+
+// Kosten der Bean-Validation-Constraints auf ToDoEntry, für gültige und ungültige Einträge
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.NANOSECONDS)
+public class ToDoValidationBenchmark {
+
+    ValidatorFactory factory;
+    Validator validator;
+    ToDoEntry valid;
+    ToDoEntry invalid;
+
+    @Setup
+    public void setup() {
+        factory = Validation.buildDefaultValidatorFactory();
+        validator = factory.getValidator();
+        valid = new ToDoEntry("Einkaufen", "Milch und Brot", LocalDateTime.now().plusDays(1), false);
+        invalid = new ToDoEntry(" ", "x".repeat(600), LocalDateTime.now().minusDays(1), false);
+    }
+
+    @TearDown
+    public void close() {
+        factory.close();
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<ToDoEntry>> validEntry() {
+        return validator.validate(valid);
+    }
+
+    @Benchmark
+    public Set<ConstraintViolation<ToDoEntry>> invalidEntry() {
+        return validator.validate(invalid);
+    }
+}
@@ -0,0 +1,59 @@
+package webtech.toDoListe;
+
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Threads;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Durchsatz der Token-Prüfung bei steigender Parallelität. Skaliert der Durchsatz
+ * mit den Threads, bremst sich die Prüfung unter hoher Request-Rate nicht selbst aus.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+public class TokenServiceBenchmark {
+
+    TokenService tokens;
+    String token;
+
+    @Setup
+    public void setup() {
+        tokens = new TokenService("benchmark-secret", Duration.ofHours(1));
+        token = tokens.issue("benchmark");
+        // ein paar widerrufene Tokens, damit die Sperrliste nicht leer ist
+        for (int i = 0; i < 10_000; i++) {
+            tokens.revoke(tokens.validate(tokens.issue("revoked" + i)));
+        }
+    }
+
+    @Benchmark
+    @Threads(1)
+    public AuthToken validate1Thread() {
+        return tokens.validate(token);
+    }
+
+    @Benchmark
+    @Threads(4)
+    public AuthToken validate4Threads() {
+        return tokens.validate(token);
+    }
+
+    @Benchmark
+    @Threads(16)
+    public AuthToken validate16Threads() {
+        return tokens.validate(token);
+    }
+
+    @Benchmark
+    public String issue() {
+        return tokens.issue("benchmark");
+    }
+}
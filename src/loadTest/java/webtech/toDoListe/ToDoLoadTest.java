@@ -0,0 +1,389 @@
+package webtech.toDoListe;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.node.ArrayNode;
+import com.fasterxml.jackson.databind.node.ObjectNode;
+import org.HdrHistogram.Histogram;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+
+import java.io.IOException;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.LockSupport;
+
+/**
+ * Lasttest für die /todos-Endpoints über HTTP.
+ * Ohne --url startet die Anwendung im selben Prozess gegen H2 im PostgreSQL-Modus (läuft komplett offline),
+ * mit --db-url gegen eine echte Datenbank, mit --url gegen eine schon laufende Instanz.
+ * <p>
+ * Jeder Worker ist ein virtueller Thread mit eigenem Benutzer-Token und eigenen IDs, damit sich Worker nicht
+ * gegenseitig Einträge wegschnappen. Mit --rate wird pro Worker ein fester Takt vorgegeben und die Latenz ab dem
+ * geplanten Startzeitpunkt gemessen, Rückstau durch langsame Antworten fließt so in die Perzentile ein.
+ * <p>
+ * Aufruf: ./gradlew loadTest [-PloadArgs="--workers=32 --duration=PT60S --write-ratio=0.3"]
+ */
+public class ToDoLoadTest {
+
+    static final String DEFAULT_DB_URL =
+            "jdbc:h2:mem:load;MODE=PostgreSQL;DATABASE_TO_LOWER=TRUE;DEFAULT_NULL_ORDERING=HIGH;DB_CLOSE_DELAY=-1";
+
+    enum Operation {
+        LIST, GET, CREATE, UPDATE, PATCH, DELETE
+    }
+
+    record Options(String url, String dbUrl, int workers, int users, int seed, Duration warmup, Duration duration,
+                   double writeRatio, double rate, Path report) {
+
+        static Options parse(String[] args) {
+            Map<String, String> values = new HashMap<>();
+            for (String arg : args) {
+                if (!arg.startsWith("--") || !arg.contains("=")) {
+                    throw new IllegalArgumentException("Unbekanntes Argument: " + arg);
+                }
+                values.put(arg.substring(2, arg.indexOf('=')), arg.substring(arg.indexOf('=') + 1));
+            }
+            Options options = new Options(
+                    values.remove("url"),
+                    values.getOrDefault("db-url", DEFAULT_DB_URL),
+                    Integer.parseInt(values.getOrDefault("workers", "16")),
+                    Integer.parseInt(values.getOrDefault("users", "4")),
+                    Integer.parseInt(values.getOrDefault("seed", "500")),
+                    Duration.parse(values.getOrDefault("warmup", "PT10S")),
+                    Duration.parse(values.getOrDefault("duration", "PT30S")),
+                    Double.parseDouble(values.getOrDefault("write-ratio", "0.2")),
+                    Double.parseDouble(values.getOrDefault("rate", "0")),
+                    Path.of(values.getOrDefault("report", "build/reports/loadtest/loadtest.json")));
+            values.keySet().removeAll(List.of("db-url", "workers", "users", "seed", "warmup", "duration",
+                    "write-ratio", "rate", "report"));
+            if (!values.isEmpty()) {
+                throw new IllegalArgumentException("Unbekannte Optionen: " + values.keySet());
+            }
+            if (options.writeRatio < 0 || options.writeRatio > 1) {
+                throw new IllegalArgumentException("write-ratio muss zwischen 0 und 1 liegen");
+            }
+            return options;
+        }
+    }
+
+    // Ergebnisse eines Workers, erst am Ende zusammengeführt, damit die Messung selbst nichts teilt
+    static class Stats {
+        final Map<Operation, Histogram> latencies = new EnumMap<>(Operation.class);
+        final Map<Operation, long[]> errors = new EnumMap<>(Operation.class);
+        final Map<String, Long> statuses = new TreeMap<>();
+
+        Stats() {
+            for (Operation operation : Operation.values()) {
+                // 1 µs bis 60 s, 3 signifikante Stellen
+                latencies.put(operation, new Histogram(TimeUnit.SECONDS.toMicros(60), 3));
+                errors.put(operation, new long[1]);
+            }
+        }
+
+        void record(Operation operation, long micros, String status, boolean error) {
+            latencies.get(operation).recordValue(Math.min(micros, TimeUnit.SECONDS.toMicros(60)));
+            if (error) {
+                errors.get(operation)[0]++;
+                statuses.merge(operation + " " + status, 1L, Long::sum);
+            }
+        }
+
+        void add(Stats other) {
+            for (Operation operation : Operation.values()) {
+                latencies.get(operation).add(other.latencies.get(operation));
+                errors.get(operation)[0] += other.errors.get(operation)[0];
+            }
+            other.statuses.forEach((status, count) -> statuses.merge(status, count, Long::sum));
+        }
+    }
+
+    private static final ObjectMapper JSON = new ObjectMapper();
+
+    private final Options options;
+    private final HttpClient client = HttpClient.newBuilder()
+            .version(HttpClient.Version.HTTP_1_1)
+            .connectTimeout(Duration.ofSeconds(5))
+            .build();
+    private String baseUrl;
+
+    ToDoLoadTest(Options options) {
+        this.options = options;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Options options = Options.parse(args);
+        ConfigurableApplicationContext context = null;
+        try {
+            String url = options.url();
+            if (url == null) {
+                context = startApplication(options);
+                url = "http://localhost:" + context.getEnvironment().getProperty("local.server.port");
+            }
+            new ToDoLoadTest(options).run(url);
+        } finally {
+            if (context != null) {
+                context.close();
+            }
+        }
+    }
+
+    private static ConfigurableApplicationContext startApplication(Options options) {
+        StringBuilder users = new StringBuilder();
+        for (int i = 0; i < options.users(); i++) {
+            users.append(i == 0 ? "" : ",").append(user(i)).append(':').append(user(i));
+        }
+        System.out.println("Starte Anwendung gegen " + options.dbUrl());
+        // nur die eigene In-Memory-DB wird angelegt und wieder verworfen, eine per --db-url angegebene
+        // Datenbank behandelt der Lasttest wie die Anwendung selbst (Schema nur ergänzen, nie löschen)
+        String ddl = DEFAULT_DB_URL.equals(options.dbUrl()) ? "create-drop" : "update";
+        return new SpringApplicationBuilder(ToDoListeApplication.class)
+                .run("--server.port=0",
+                        "--management.server.port=0",
+                        "--spring.datasource.url=" + options.dbUrl(),
+                        "--spring.jpa.hibernate.ddl-auto=" + ddl,
+                        "--app.auth.users=" + users,
+                        // gemessen wird die Anwendung, nicht das Rate-Limit pro Benutzer
+                        "--app.rate-limit.enabled=false",
+                        "--logging.level.root=WARN");
+    }
+
+    void run(String url) throws Exception {
+        baseUrl = url;
+        List<String> tokens = new ArrayList<>();
+        for (int i = 0; i < options.users(); i++) {
+            tokens.add(login(user(i)));
+        }
+
+        // jeder Worker legt sich seinen Anteil der Startdaten selbst an
+        int seedPerWorker = Math.max(1, options.seed() / options.workers());
+        List<Stats> results = new ArrayList<>();
+        List<Thread> workers = new ArrayList<>();
+        long measureFrom = System.nanoTime() + options.warmup().toNanos();
+        long end = measureFrom + options.duration().toNanos();
+        System.out.printf("%d Worker, %d Benutzer, Aufwärmen %s, Messung %s, Schreibanteil %.0f %%%s%n",
+                options.workers(), options.users(), options.warmup(), options.duration(), options.writeRatio() * 100,
+                options.rate() > 0 ? ", " + options.rate() + " Requests/s je Worker" : "");
+        for (int i = 0; i < options.workers(); i++) {
+            Stats stats = new Stats();
+            results.add(stats);
+            String token = tokens.get(i % tokens.size());
+            workers.add(Thread.ofVirtual().name("load-" + i)
+                    .start(() -> work(token, seedPerWorker, measureFrom, end, stats)));
+        }
+        for (Thread worker : workers) {
+            worker.join();
+        }
+
+        Stats total = new Stats();
+        results.forEach(total::add);
+        report(total);
+    }
+
+    private void work(String token, int seed, long measureFrom, long end, Stats stats) {
+        List<Long> ids = new ArrayList<>();
+        try {
+            for (JsonNode entry : JSON.readTree(send(token, "POST", "/todos/batch", seedBody(seed)).body())) {
+                ids.add(entry.get("id").asLong());
+            }
+        } catch (IOException | InterruptedException e) {
+            throw new IllegalStateException("Startdaten konnten nicht angelegt werden", e);
+        }
+
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        long interval = options.rate() > 0 ? (long) (TimeUnit.SECONDS.toNanos(1) / options.rate()) : 0;
+        long next = System.nanoTime();
+        while (true) {
+            long start;
+            if (interval > 0) {
+                // fester Takt: gemessen wird ab dem geplanten Start, nicht ab dem tatsächlichen
+                long wait = next - System.nanoTime();
+                if (wait > 0) {
+                    LockSupport.parkNanos(wait);
+                }
+                start = next;
+                next += interval;
+            } else {
+                start = System.nanoTime();
+            }
+            if (start >= end) {
+                return;
+            }
+            Operation operation = pick(random, ids);
+            String status;
+            boolean error;
+            try {
+                HttpResponse<String> response = execute(operation, token, ids, random);
+                status = String.valueOf(response.statusCode());
+                error = response.statusCode() >= 400;
+            } catch (IOException e) {
+                status = e.getClass().getSimpleName();
+                error = true;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return;
+            }
+            if (start >= measureFrom) {
+                stats.record(operation, TimeUnit.NANOSECONDS.toMicros(System.nanoTime() - start), status, error);
+            }
+        }
+    }
+
+    private Operation pick(ThreadLocalRandom random, List<Long> ids) {
+        if (random.nextDouble() >= options.writeRatio()) {
+            return random.nextInt(10) == 0 ? Operation.LIST : Operation.GET;
+        }
+        // Schreiblast: gleich viele Anlagen wie Löschungen, damit die Datenmenge stabil bleibt
+        return switch (random.nextInt(6)) {
+            case 0 -> Operation.CREATE;
+            case 1 -> ids.isEmpty() ? Operation.CREATE : Operation.DELETE;
+            case 2, 3 -> Operation.UPDATE;
+            default -> Operation.PATCH;
+        };
+    }
+
+    private HttpResponse<String> execute(Operation operation, String token, List<Long> ids, ThreadLocalRandom random)
+            throws IOException, InterruptedException {
+        if (ids.isEmpty() && operation != Operation.LIST) {
+            operation = Operation.CREATE;
+        }
+        return switch (operation) {
+            case LIST -> send(token, "GET", "/todos", null);
+            case GET -> send(token, "GET", "/todos/" + ids.get(random.nextInt(ids.size())), null);
+            case CREATE -> {
+                HttpResponse<String> response = send(token, "POST", "/todos", entry(random.nextInt(), false).toString());
+                if (response.statusCode() == 201) {
+                    ids.add(JSON.readTree(response.body()).get("id").asLong());
+                }
+                yield response;
+            }
+            case UPDATE -> send(token, "PUT", "/todos/" + ids.get(random.nextInt(ids.size())),
+                    entry(random.nextInt(), random.nextBoolean()).toString());
+            case PATCH -> send(token, "PATCH", "/todos/" + ids.get(random.nextInt(ids.size())),
+                    "{\"done\":" + random.nextBoolean() + "}");
+            case DELETE -> send(token, "DELETE", "/todos/" + ids.remove(random.nextInt(ids.size())), null);
+        };
+    }
+
+    private HttpResponse<String> send(String token, String method, String path, String body)
+            throws IOException, InterruptedException {
+        HttpRequest.Builder request = HttpRequest.newBuilder(URI.create(baseUrl + path))
+                .timeout(Duration.ofSeconds(30))
+                .header("Accept", "application/json");
+        if (token != null) {
+            request.header("Authorization", "Bearer " + token);
+        }
+        if (body != null) {
+            request.header("Content-Type", "application/json")
+                    .method(method, HttpRequest.BodyPublishers.ofString(body));
+        } else {
+            request.method(method, HttpRequest.BodyPublishers.noBody());
+        }
+        return client.send(request.build(), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private String login(String user) throws IOException, InterruptedException {
+        ObjectNode body = JSON.createObjectNode().put("username", user).put("password", user);
+        HttpResponse<String> response = send(null, "POST", "/auth/login", body.toString());
+        if (response.statusCode() != 200) {
+            throw new IllegalStateException("Login für " + user + " fehlgeschlagen: " + response.statusCode());
+        }
+        return JSON.readTree(response.body()).get("token").asText();
+    }
+
+    private String seedBody(int count) {
+        ArrayNode entries = JSON.createArrayNode();
+        for (int i = 0; i < count; i++) {
+            entries.add(entry(i, false));
+        }
+        return entries.toString();
+    }
+
+    private static ObjectNode entry(int i, boolean done) {
+        return JSON.createObjectNode()
+                .put("name", "Lasttest " + i)
+                .put("description", "Eintrag aus dem Lasttest")
+                .put("dueTime", LocalDateTime.now().plusDays(1 + Math.floorMod(i, 30)).withNano(0).toString())
+                .put("done", done);
+    }
+
+    private static String user(int i) {
+        return "load" + i;
+    }
+
+    private void report(Stats total) throws IOException {
+        double seconds = options.duration().toNanos() / 1e9;
+        Map<String, Object> operations = new LinkedHashMap<>();
+        Histogram all = new Histogram(TimeUnit.SECONDS.toMicros(60), 3);
+        long allErrors = 0;
+
+        System.out.printf("%n%-8s %10s %10s %8s %9s %9s %9s %9s %9s%n",
+                "Aufruf", "Anzahl", "Req/s", "Fehler", "p50 ms", "p90 ms", "p99 ms", "p99.9 ms", "max ms");
+        for (Operation operation : Operation.values()) {
+            Histogram histogram = total.latencies.get(operation);
+            long errors = total.errors.get(operation)[0];
+            all.add(histogram);
+            allErrors += errors;
+            if (histogram.getTotalCount() > 0) {
+                operations.put(operation.name(), summary(histogram, errors, seconds));
+                print(operation.name(), histogram, errors, seconds);
+            }
+        }
+        print("GESAMT", all, allErrors, seconds);
+        if (!total.statuses.isEmpty()) {
+            System.out.println("\nFehler nach Status: " + total.statuses);
+        }
+
+        Map<String, Object> result = new LinkedHashMap<>();
+        result.put("url", options.url() != null ? options.url() : options.dbUrl());
+        result.put("workers", options.workers());
+        result.put("users", options.users());
+        result.put("durationSeconds", seconds);
+        result.put("writeRatio", options.writeRatio());
+        result.put("ratePerWorker", options.rate());
+        result.put("total", summary(all, allErrors, seconds));
+        result.put("operations", operations);
+        result.put("errorsByStatus", total.statuses);
+        Files.createDirectories(options.report().toAbsolutePath().getParent());
+        JSON.writerWithDefaultPrettyPrinter().writeValue(options.report().toFile(), result);
+        System.out.println("\nErgebnis: " + options.report().toAbsolutePath());
+    }
+
+    private static Map<String, Object> summary(Histogram histogram, long errors, double seconds) {
+        Map<String, Object> summary = new LinkedHashMap<>();
+        summary.put("requests", histogram.getTotalCount());
+        summary.put("throughputPerSecond", histogram.getTotalCount() / seconds);
+        summary.put("errors", errors);
+        summary.put("errorRate", histogram.getTotalCount() == 0 ? 0.0 : (double) errors / histogram.getTotalCount());
+        summary.put("p50Millis", histogram.getValueAtPercentile(50) / 1000.0);
+        summary.put("p90Millis", histogram.getValueAtPercentile(90) / 1000.0);
+        summary.put("p99Millis", histogram.getValueAtPercentile(99) / 1000.0);
+        summary.put("p999Millis", histogram.getValueAtPercentile(99.9) / 1000.0);
+        summary.put("maxMillis", histogram.getMaxValue() / 1000.0);
+        return summary;
+    }
+
+    private static void print(String name, Histogram histogram, long errors, double seconds) {
+        long count = histogram.getTotalCount();
+        System.out.printf("%-8s %10d %10.1f %7.2f%% %9.2f %9.2f %9.2f %9.2f %9.2f%n",
+                name, count, count / seconds, count == 0 ? 0.0 : 100.0 * errors / count,
+                histogram.getValueAtPercentile(50) / 1000.0, histogram.getValueAtPercentile(90) / 1000.0,
+                histogram.getValueAtPercentile(99) / 1000.0, histogram.getValueAtPercentile(99.9) / 1000.0,
+                histogram.getMaxValue() / 1000.0);
+    }
+}
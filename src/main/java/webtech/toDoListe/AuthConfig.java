@@ -0,0 +1,19 @@
+package webtech.toDoListe;
+
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+@Configuration
+public class AuthConfig {
+
+    // nur /todos ist geschützt, /auth/login bleibt offen; /actuator liegt auf dem eigenen Management-Port
+    @Bean
+    public FilterRegistrationBean<AuthTokenFilter> authTokenFilter(TokenService tokens) {
+        FilterRegistrationBean<AuthTokenFilter> registration = new FilterRegistrationBean<>(new AuthTokenFilter(tokens));
+        registration.addUrlPatterns("/todos/*");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 10);
+        return registration;
+    }
+}
@@ -1,5 +1,7 @@
 package webtech.toDoListe;
+import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.web.bind.annotation.RequestHeader;
 import org.springframework.web.bind.annotation.RestController;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
@@ -7,7 +9,6 @@ import org.springframework.web.bind.annotation.RequestMapping;
 import org.springframework.web.bind.annotation.CrossOrigin;
 import org.springframework.http.ResponseEntity;
 import org.springframework.http.HttpStatus;
-import java.util.UUID;
 
 
 // AuthController.java
@@ -21,17 +22,49 @@ public class AuthController {
     @Value("${app.auth.pass}")
     private String validPass;
 
+    // weitere Benutzer als "name:passwort,name2:passwort2", jeder sieht nur seine eigenen ToDos
+    @Value("${app.auth.users:}")
+    private String additionalUsers;
+
+    @Autowired
+    TokenService tokens;
+
     @PostMapping("/login")
     public ResponseEntity<LoginResponse> login(@RequestBody LoginRequest req) {
 
 
-        if (validUser.equals(req.getUsername()) && validPass.equals(req.getPassword())) {
-            // Dummy-Token (kann einfach eine UUID sein)
-            String token = UUID.randomUUID().toString();
+        if (req.getUsername() != null && req.getPassword() != null
+                && req.getPassword().equals(passwordOf(req.getUsername()))) {
+            // signiertes Token mit Ablaufzeit, wird vom AuthTokenFilter ohne DB-Zugriff geprüft
+            String token = tokens.issue(req.getUsername());
             return ResponseEntity.ok(new LoginResponse(token, req.getUsername()));
         }
 
         // sonst 401 = Unauthorized
         return ResponseEntity.status(HttpStatus.UNAUTHORIZED).build();
     }
+
+    private String passwordOf(String username) {
+        if (validUser.equals(username)) {
+            return validPass;
+        }
+        for (String user : additionalUsers.split(",")) {
+            int separator = user.indexOf(':');
+            if (separator > 0 && user.substring(0, separator).trim().equals(username)) {
+                return user.substring(separator + 1);
+            }
+        }
+        return null;
+    }
+
+    @PostMapping("/logout")
+    public ResponseEntity<Void> logout(@RequestHeader(value = "Authorization", required = false) String authorization) {
+        if (authorization != null && authorization.startsWith("Bearer ")) {
+            AuthToken token = tokens.validate(authorization.substring("Bearer ".length()).trim());
+            if (token != null) {
+                tokens.revoke(token);
+            }
+        }
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -0,0 +1,5 @@
+package webtech.toDoListe;
+
+// Inhalt eines geprüften Tokens, expiresAt in Epoch-Sekunden
+public record AuthToken(String username, long tokenId, long expiresAt) {
+}
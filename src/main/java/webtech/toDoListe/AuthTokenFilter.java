@@ -0,0 +1,64 @@
+package webtech.toDoListe;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+/**
+ * Prüft das Bearer-Token vor jedem /todos-Aufruf. Die Prüfung ist reine CPU-Arbeit
+ * (eine HMAC und ein Map-Lookup), es gibt keinen DB- oder Netzwerkzugriff.
+ * Der Benutzername landet als Request-Attribut USER_ATTRIBUTE.
+ */
+public class AuthTokenFilter extends OncePerRequestFilter {
+
+    public static final String USER_ATTRIBUTE = "todoUser";
+
+    private static final String BEARER = "Bearer ";
+    private static final byte[] UNAUTHORIZED_BODY = "{\"message\":\"Nicht angemeldet\"}".getBytes();
+
+    private final TokenService tokens;
+
+    public AuthTokenFilter(TokenService tokens) {
+        this.tokens = tokens;
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        // CORS-Preflight kommt ohne Authorization-Header
+        if ("OPTIONS".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        AuthToken token = tokens.validate(extractToken(request));
+        if (token == null) {
+            response.setStatus(HttpServletResponse.SC_UNAUTHORIZED);
+            response.setHeader(HttpHeaders.WWW_AUTHENTICATE, "Bearer");
+            response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+            response.getOutputStream().write(UNAUTHORIZED_BODY);
+            return;
+        }
+
+        request.setAttribute(USER_ATTRIBUTE, token.username());
+        chain.doFilter(request, response);
+    }
+
+    private static String extractToken(HttpServletRequest request) {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+        if (header != null && header.startsWith(BEARER)) {
+            return header.substring(BEARER.length()).trim();
+        }
+        // EventSource im Browser kann keine Header setzen, deshalb dort ausnahmsweise als Query-Parameter
+        if ("/todos/events".equals(request.getRequestURI())) {
+            return request.getParameter("access_token");
+        }
+        return null;
+    }
+}
@@ -0,0 +1,23 @@
+package webtech.toDoListe;
+
+import org.springframework.http.HttpStatus;
+
+import java.util.Map;
+
+// Validierungsfehler mehrerer Einträge, Schlüssel sind z.B. "[3].name"
+public class BatchValidationException extends ToDoException {
+
+    private final Map<String, String> errors;
+
+    public BatchValidationException(Map<String, String> errors) {
+        super("Validierung fehlgeschlagen");
+        this.errors = errors;
+    }
+
+    public Map<String, String> getErrors() { return errors; }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.BAD_REQUEST;
+    }
+}
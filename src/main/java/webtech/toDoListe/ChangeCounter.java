@@ -0,0 +1,25 @@
+package webtech.toDoListe;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+
+// Zählerzeile für die Änderungsnummern der Delta-Synchronisation
+@Entity
+public class ChangeCounter {
+
+    @Id
+    private String name;
+    private long lastValue;
+
+    public ChangeCounter() {
+
+    }
+
+    public ChangeCounter(String name, long lastValue) {
+        this.name = name;
+        this.lastValue = lastValue;
+    }
+
+    public String getName() { return name; }
+    public long getLastValue() { return lastValue; }
+}
@@ -0,0 +1,20 @@
+package webtech.toDoListe;
+
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+public interface ChangeCounterRepository extends CrudRepository<ChangeCounter, String> {
+
+    @Modifying
+    @Query("update ChangeCounter c set c.lastValue = c.lastValue + 1 where c.name = :name")
+    int increment(String name);
+
+    // neue Benutzerzähler starten beim Stand des alten Gesamtzählers, das erste increment liefert also dessen Wert + 1
+    @Modifying
+    @Query(value = "insert into change_counter (name, last_value) values (:name, :lastValue)", nativeQuery = true)
+    int insert(String name, long lastValue);
+
+    @Query("select c.lastValue from ChangeCounter c where c.name = :name")
+    Long currentValue(String name);
+}
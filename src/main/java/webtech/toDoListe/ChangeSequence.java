@@ -0,0 +1,72 @@
+package webtech.toDoListe;
+
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+/**
+ * Vergibt fortlaufende Änderungsnummern für ToDo-Schreibzugriffe.
+ * Das Hochzählen sperrt die Zählerzeile bis zum Commit, dadurch werden die Nummern
+ * in genau der Reihenfolge sichtbar, in der sie vergeben wurden. Ein Client, der bis
+ * zur Nummer N synchronisiert hat, kann also keine kleinere Nummer mehr verpassen.
+ * Jeder Benutzer hat einen eigenen Zähler, Schreibzugriffe verschiedener Benutzer warten
+ * also nicht aufeinander.
+ */
+@Component
+public class ChangeSequence {
+
+    // Zähler aus der Zeit vor der Benutzerzuordnung, neue Benutzerzähler starten oberhalb davon
+    static final String TODOS = "todos";
+    static final String OWNER_PREFIX = "todos:";
+
+    @Autowired
+    ChangeCounterRepository counters;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    // muss in der schreibenden Transaktion laufen, damit die Sperre bis zu deren Commit hält
+    @Transactional(propagation = Propagation.MANDATORY)
+    public long next(String owner) {
+        String name = OWNER_PREFIX + owner;
+        for (int attempt = 0; attempt < 3; attempt++) {
+            if (counters.increment(name) > 0) {
+                return counters.currentValue(name);
+            }
+            createCounter(name);
+        }
+        throw new IllegalStateException("Zähler " + name + " konnte nicht angelegt werden");
+    }
+
+    /*
+     * Legt den Zähler beim ersten Schreibzugriff eines Benutzers in einer eigenen Transaktion an.
+     * Kommen zwei erste Schreibzugriffe gleichzeitig, scheitert einer am Primärschlüssel; das ist
+     * dann kein Fehler, der Zähler existiert ja. Die eigene Transaktion ist nötig, weil PostgreSQL
+     * nach einem fehlgeschlagenen Statement die ganze umgebende Transaktion abbricht.
+     */
+    private void createCounter(String name) {
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        try {
+            transaction.executeWithoutResult(status -> counters.insert(name, legacyValue()));
+        } catch (DataIntegrityViolationException e) {
+            // von einem parallelen ersten Schreibzugriff angelegt
+        }
+    }
+
+    // höchste Nummer des Benutzers, deren Transaktion bereits committet ist
+    public long current(String owner) {
+        Long value = counters.currentValue(OWNER_PREFIX + owner);
+        return value == null ? legacyValue() : value;
+    }
+
+    private long legacyValue() {
+        Long value = counters.currentValue(TODOS);
+        return value == null ? 0 : value;
+    }
+}
@@ -14,7 +14,8 @@ public class CorsConfig implements WebMvcConfigurer {
                         "http://localhost:5173",                 // lokal Vite
                         "https://webtechprojektfrontend.onrender.com"     // Render-Frontend
                 )
-                .allowedMethods("GET", "POST", "PUT", "DELETE", "OPTIONS")
-                .allowedHeaders("*");
+                .allowedMethods("GET", "POST", "PUT", "PATCH", "DELETE", "OPTIONS")
+                .allowedHeaders("*")
+                .exposedHeaders("ETag", ToDoIdempotencyStore.REPLAYED_HEADER);
     }
 }
@@ -0,0 +1,52 @@
+package webtech.toDoListe;
+
+import java.util.List;
+
+// ETags aus der Version der Einträge, keine Hashes über den serialisierten Body
+final class ETags {
+
+    private ETags() {
+    }
+
+    static String of(ToDoEntry entry) {
+        return of(entry.getVersion());
+    }
+
+    static String of(Long version) {
+        return "\"" + version + "\"";
+    }
+
+    // ändert sich, sobald ein Eintrag dazukommt, wegfällt, eine neue Version bekommt oder eine
+    // Write-Behind-Umschaltung done ändert, bevor die Version nachzieht
+    static String ofList(List<ToDoEntry> entries) {
+        long hash = 1;
+        for (ToDoEntry e : entries) {
+            hash = 31 * hash + e.getId();
+            hash = 31 * hash + (e.getVersion() == null ? 0 : e.getVersion());
+            hash = 31 * hash + (e.isDone() ? 1 : 0);
+        }
+        return "\"" + entries.size() + "-" + Long.toHexString(hash) + "\"";
+    }
+
+    /**
+     * Liest die erwartete Version aus If-Match. null bei fehlendem Header oder "*",
+     * ein unlesbarer Wert ergibt -1 und passt damit auf keine Version.
+     */
+    static Long parseIfMatch(String ifMatch) {
+        if (ifMatch == null || ifMatch.isBlank() || ifMatch.trim().equals("*")) {
+            return null;
+        }
+        String value = ifMatch.trim();
+        if (value.startsWith("W/")) {
+            value = value.substring(2);
+        }
+        if (value.length() >= 2 && value.startsWith("\"") && value.endsWith("\"")) {
+            value = value.substring(1, value.length() - 1);
+        }
+        try {
+            return Long.parseLong(value);
+        } catch (NumberFormatException e) {
+            return -1L;
+        }
+    }
+}
@@ -1,36 +1,163 @@
 package webtech.toDoListe;
 
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Metrics;
+import jakarta.servlet.ServletException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.TypeMismatchException;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.HttpStatusCode;
+import org.springframework.http.MediaType;
+import org.springframework.http.ProblemDetail;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.converter.HttpMessageNotReadableException;
 import org.springframework.validation.FieldError;
+import org.springframework.web.ErrorResponse;
+import org.springframework.web.ErrorResponseException;
 import org.springframework.web.bind.MethodArgumentNotValidException;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 
-import java.util.HashMap;
+import java.net.URI;
 import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Fehlerantworten als RFC 7807 Problem Details (application/problem+json).
+ * Für die Clients bleiben die bisherigen Felder erhalten: "message" bei einzelnen Fehlern,
+ * bei Validierungsfehlern je Feld ein Eintrag auf oberster Ebene ("name" bzw. "[3].name").
+ * Typ, Titel und Zähler je Fehlerart werden einmal angelegt, je Fehler entsteht nur das ProblemDetail.
+ */
 @RestControllerAdvice
 public class GlobalExceptionHandler {
 
+    enum ProblemType {
+        VALIDATION("validation", "Ungültige Eingabe"),
+        BAD_REQUEST("bad-request", "Ungültige Anfrage"),
+        NOT_FOUND("not-found", "Nicht gefunden"),
+        PRECONDITION_FAILED("precondition-failed", "Version geändert"),
+        IDEMPOTENCY_KEY_REUSED("idempotency-key-reused", "Idempotency-Key bereits verwendet"),
+        INTERNAL("internal", "Interner Fehler");
+
+        final URI type;
+        final String title;
+        final Counter counter;
+
+        ProblemType(String name, String title) {
+            this.type = URI.create("/problems/" + name);
+            this.title = title;
+            this.counter = counter(name);
+        }
+    }
+
+    // Zähler für Fehler aus Spring selbst (400, 404, 405, 415, 503 ...), je Status einmal angelegt
+    private static final Map<Integer, Counter> STATUS_COUNTERS = new ConcurrentHashMap<>();
+
+    Logger logger = LoggerFactory.getLogger(GlobalExceptionHandler.class);
+
+    // im globalen Registry, damit der Handler auch ohne Actuator (z.B. im WebMvcTest) funktioniert
+    private static Counter counter(String type) {
+        return Counter.builder("todos.errors")
+                .description("Fehlerantworten je Fehlerart")
+                .tag("type", type)
+                .register(Metrics.globalRegistry);
+    }
+
     @ExceptionHandler(MethodArgumentNotValidException.class)
-    public ResponseEntity<Map<String, String>> handleValidationExceptions(
-            MethodArgumentNotValidException ex) {
-
-        Map<String, String> errors = new HashMap<>();
-        ex.getBindingResult().getAllErrors().forEach((error) -> {
-            String fieldName = ((FieldError) error).getField();
-            String errorMessage = error.getDefaultMessage();
-            errors.put(fieldName, errorMessage);
+    public ResponseEntity<ProblemDetail> handleValidationExceptions(MethodArgumentNotValidException ex) {
+        ProblemDetail problem = problem(ProblemType.VALIDATION, HttpStatus.BAD_REQUEST, "Validierung fehlgeschlagen");
+        ex.getBindingResult().getAllErrors().forEach(error -> {
+            String fieldName = error instanceof FieldError fieldError ? fieldError.getField() : error.getObjectName();
+            problem.setProperty(fieldName, error.getDefaultMessage());
         });
+        return respond(problem);
+    }
+
+    @ExceptionHandler(BatchValidationException.class)
+    public ResponseEntity<ProblemDetail> handleBatchValidation(BatchValidationException e) {
+        ProblemDetail problem = problem(ProblemType.VALIDATION, e.getStatus(), e.getMessage());
+        e.getErrors().forEach(problem::setProperty);
+        return respond(problem);
+    }
+
+    @ExceptionHandler(ToDoException.class)
+    public ResponseEntity<ProblemDetail> handleToDoException(ToDoException e) {
+        ProblemType type = e instanceof ToDoNotFoundException ? ProblemType.NOT_FOUND
+                : e instanceof PreconditionFailedException ? ProblemType.PRECONDITION_FAILED
+                : e instanceof IdempotencyKeyReusedException ? ProblemType.IDEMPOTENCY_KEY_REUSED
+                : ProblemType.BAD_REQUEST;
+        return respond(withMessage(problem(type, e.getStatus(), e.getMessage())));
+    }
 
-        return ResponseEntity.status(HttpStatus.BAD_REQUEST).body(errors);
+    // ungültige Parameter (z.B. /todos/abc oder ?done=vielleicht) und nicht lesbarer Body
+    @ExceptionHandler({IllegalArgumentException.class, TypeMismatchException.class, HttpMessageNotReadableException.class})
+    public ResponseEntity<ProblemDetail> handleIllegalArgument(Exception e) {
+        String detail = e instanceof IllegalArgumentException ? e.getMessage()
+                : e instanceof TypeMismatchException mismatch ? "Ungültiger Wert für " + mismatch.getPropertyName()
+                : "Request-Body ist nicht lesbar";
+        return respond(withMessage(problem(ProblemType.BAD_REQUEST, HttpStatus.BAD_REQUEST, detail)));
     }
 
+    // ResponseStatusException und andere Fehler mit eigenem Status behalten ihn
+    @ExceptionHandler(ErrorResponseException.class)
+    public ResponseEntity<ProblemDetail> handleErrorResponse(ErrorResponseException e) {
+        return fromErrorResponse(e);
+    }
+
+    // Fehler aus Spring MVC vor dem Controller-Aufruf (405, 415, fehlender Parameter, unbekannter Pfad ...)
+    // sind ServletExceptions, die an den Handlern oben vorbeigehen; sie bringen ihren Status als ErrorResponse mit
+    @ExceptionHandler(ServletException.class)
+    public ResponseEntity<ProblemDetail> handleServletException(ServletException e) {
+        if (e instanceof ErrorResponse errorResponse) {
+            return fromErrorResponse(errorResponse);
+        }
+        logger.error("Unerwarteter Fehler", e);
+        return respond(withMessage(problem(ProblemType.INTERNAL, HttpStatus.INTERNAL_SERVER_ERROR,
+                "Interner Fehler, bitte später erneut versuchen")));
+    }
+
+    // alles Unerwartete ist ein Serverfehler; nur hier wird mit Stacktrace geloggt
     @ExceptionHandler(RuntimeException.class)
-    public ResponseEntity<Map<String, String>> handleRuntimeException(RuntimeException e) {
-        Map<String, String> error = new HashMap<>();
-        error.put("message", e.getMessage());
-        return ResponseEntity.status(HttpStatus.NOT_FOUND).body(error);
+    public ResponseEntity<ProblemDetail> handleRuntimeException(RuntimeException e) {
+        if (e instanceof ErrorResponse errorResponse) {
+            return fromErrorResponse(errorResponse);
+        }
+        logger.error("Unerwarteter Fehler", e);
+        return respond(withMessage(problem(ProblemType.INTERNAL, HttpStatus.INTERNAL_SERVER_ERROR,
+                "Interner Fehler, bitte später erneut versuchen")));
+    }
+
+    private ResponseEntity<ProblemDetail> fromErrorResponse(ErrorResponse e) {
+        HttpStatusCode status = e.getStatusCode();
+        STATUS_COUNTERS.computeIfAbsent(status.value(), code -> counter("http-" + code)).increment();
+        ProblemDetail problem = e.getBody();
+        if (problem.getDetail() != null) {
+            problem.setProperty("message", problem.getDetail());
+        }
+        return ResponseEntity.status(status)
+                .headers(e.getHeaders())
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(problem);
+    }
+
+    private static ProblemDetail problem(ProblemType type, HttpStatusCode status, String detail) {
+        type.counter.increment();
+        ProblemDetail problem = ProblemDetail.forStatusAndDetail(status, detail);
+        problem.setType(type.type);
+        problem.setTitle(type.title);
+        return problem;
+    }
+
+    // "message" wie in den bisherigen Fehlerantworten
+    private static ProblemDetail withMessage(ProblemDetail problem) {
+        problem.setProperty("message", problem.getDetail());
+        return problem;
+    }
+
+    private static ResponseEntity<ProblemDetail> respond(ProblemDetail problem) {
+        return ResponseEntity.status(problem.getStatus())
+                .contentType(MediaType.APPLICATION_PROBLEM_JSON)
+                .body(problem);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,16 @@
+package webtech.toDoListe;
+
+import org.springframework.http.HttpStatus;
+
+// Idempotency-Key wurde schon für einen anderen Request-Body benutzt -> 422
+public class IdempotencyKeyReusedException extends ToDoException {
+
+    public IdempotencyKeyReusedException(String key) {
+        super("Idempotency-Key " + key + " wurde bereits für eine andere Anfrage verwendet");
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.UNPROCESSABLE_ENTITY;
+    }
+}
@@ -0,0 +1,16 @@
+package webtech.toDoListe;
+
+import org.springframework.http.HttpStatus;
+
+// If-Match passt nicht zur gespeicherten Version -> 412
+public class PreconditionFailedException extends ToDoException {
+
+    public PreconditionFailedException(String message) {
+        super(message);
+    }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.PRECONDITION_FAILED;
+    }
+}
@@ -0,0 +1,40 @@
+package webtech.toDoListe;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.web.servlet.FilterRegistrationBean;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.Ordered;
+
+import java.time.Duration;
+
+@Configuration
+@ConditionalOnProperty(name = "app.rate-limit.enabled", havingValue = "true", matchIfMissing = true)
+public class RateLimitConfig {
+
+    // nach dem AuthTokenFilter, damit /todos nach Benutzer statt nach IP begrenzt wird
+    @Bean
+    public FilterRegistrationBean<RateLimitFilter> rateLimitFilter(
+            @Value("${app.rate-limit.login.per-second:0.2}") double loginPerSecond,
+            @Value("${app.rate-limit.login.burst:5}") int loginBurst,
+            @Value("${app.rate-limit.read.per-second:50}") double readPerSecond,
+            @Value("${app.rate-limit.read.burst:100}") int readBurst,
+            @Value("${app.rate-limit.write.per-second:20}") double writePerSecond,
+            @Value("${app.rate-limit.write.burst:40}") int writeBurst,
+            @Value("${app.rate-limit.max-clients:100000}") long maxClients,
+            @Value("${app.admission.max-concurrent:${spring.datasource.hikari.maximum-pool-size:20}}") int maxConcurrent,
+            @Value("${app.admission.max-wait:PT0.1S}") Duration maxWait,
+            MeterRegistry registry) {
+        RateLimitFilter filter = new RateLimitFilter(
+                new RateLimiter("login", loginPerSecond, loginBurst, maxClients),
+                new RateLimiter("read", readPerSecond, readBurst, maxClients),
+                new RateLimiter("write", writePerSecond, writeBurst, maxClients),
+                maxConcurrent, maxWait, registry);
+        FilterRegistrationBean<RateLimitFilter> registration = new FilterRegistrationBean<>(filter);
+        registration.addUrlPatterns("/todos/*", "/auth/login");
+        registration.setOrder(Ordered.HIGHEST_PRECEDENCE + 20);
+        return registration;
+    }
+}
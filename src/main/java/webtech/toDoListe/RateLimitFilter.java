@@ -0,0 +1,168 @@
+package webtech.toDoListe;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.servlet.AsyncEvent;
+import jakarta.servlet.AsyncListener;
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Schützt Login und /todos vor einzelnen lauten Clients und vor Überlast.
+ * <ul>
+ *     <li>Rate-Limit je Client: Login nach IP, /todos nach Benutzer (der AuthTokenFilter läuft vorher),
+ *     getrennte Quoten für Lesen und Schreiben. Überschreitung: 429 mit Retry-After.</li>
+ *     <li>Admission Control: höchstens maxConcurrent /todos-Requests gleichzeitig (Standard: Größe des Hikari-Pools).
+ *     Wer nach maxWait keinen Platz bekommt, erhält 503 mit Retry-After, statt im Hikari-Pool bis zum Timeout zu warten.
+ *     Gestreamte Antworten (/todos/stream, /todos/export) lesen nach dem Start des asynchronen Teils weiter über
+ *     ihren DB-Cursor und behalten den Platz bis zum Ende der Antwort. Nur /todos/events gibt ihn sofort frei,
+ *     eine offene SSE-Verbindung hält keine DB-Verbindung.</li>
+ * </ul>
+ */
+public class RateLimitFilter extends OncePerRequestFilter {
+
+    private static final String EVENTS_PATH = "/todos/events";
+
+    private static final byte[] TOO_MANY_REQUESTS_BODY =
+            "{\"message\":\"Zu viele Anfragen, bitte später erneut versuchen\"}".getBytes();
+    private static final byte[] OVERLOADED_BODY =
+            "{\"message\":\"Server ausgelastet, bitte später erneut versuchen\"}".getBytes();
+
+    private final RateLimiter login;
+    private final RateLimiter read;
+    private final RateLimiter write;
+
+    private final Semaphore admission;
+    private final int maxConcurrent;
+    private final long maxWaitNanos;
+
+    private final Counter rejectedLogin;
+    private final Counter rejectedRead;
+    private final Counter rejectedWrite;
+    private final Counter rejectedOverload;
+
+    public RateLimitFilter(RateLimiter login, RateLimiter read, RateLimiter write,
+                           int maxConcurrent, Duration maxWait, MeterRegistry registry) {
+        this.login = login;
+        this.read = read;
+        this.write = write;
+        this.maxConcurrent = maxConcurrent;
+        this.admission = new Semaphore(maxConcurrent);
+        this.maxWaitNanos = maxWait.toNanos();
+        this.rejectedLogin = rejected(registry, "rate_limit", login.getName());
+        this.rejectedRead = rejected(registry, "rate_limit", read.getName());
+        this.rejectedWrite = rejected(registry, "rate_limit", write.getName());
+        this.rejectedOverload = rejected(registry, "overload", "todos");
+        Gauge.builder("todos.requests.in_flight", admission, s -> maxConcurrent - s.availablePermits())
+                .description("Gleichzeitig bearbeitete /todos-Requests")
+                .register(registry);
+    }
+
+    private static Counter rejected(MeterRegistry registry, String reason, String quota) {
+        return Counter.builder("todos.requests.rejected")
+                .description("Abgelehnte Requests (429 Rate-Limit, 503 Überlast)")
+                .tag("reason", reason)
+                .tag("quota", quota)
+                .register(registry);
+    }
+
+    @Override
+    protected void doFilterInternal(HttpServletRequest request, HttpServletResponse response, FilterChain chain)
+            throws ServletException, IOException {
+        if ("OPTIONS".equals(request.getMethod())) {
+            chain.doFilter(request, response);
+            return;
+        }
+
+        if (request.getRequestURI().startsWith("/auth/")) {
+            // Brute-Force-Schutz: nach IP, hinter einem Proxy liefert getRemoteAddr die Client-IP
+            // nur mit server.forward-headers-strategy
+            if (limited(login, request.getRemoteAddr(), rejectedLogin, response)) {
+                return;
+            }
+            chain.doFilter(request, response);
+            return;
+        }
+
+        Object user = request.getAttribute(AuthTokenFilter.USER_ATTRIBUTE);
+        String key = user != null ? user.toString() : request.getRemoteAddr();
+        boolean reading = "GET".equals(request.getMethod()) || "HEAD".equals(request.getMethod());
+        if (reading ? limited(read, key, rejectedRead, response) : limited(write, key, rejectedWrite, response)) {
+            return;
+        }
+
+        boolean admitted;
+        try {
+            admitted = admission.tryAcquire(maxWaitNanos, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            admitted = false;
+        }
+        if (!admitted) {
+            rejectedOverload.increment();
+            reject(response, HttpServletResponse.SC_SERVICE_UNAVAILABLE, 1, OVERLOADED_BODY);
+            return;
+        }
+        boolean releaseOnComplete = false;
+        try {
+            chain.doFilter(request, response);
+            releaseOnComplete = request.isAsyncStarted() && !EVENTS_PATH.equals(request.getRequestURI());
+        } finally {
+            if (releaseOnComplete) {
+                // der asynchrone Teil läuft ohne diesen Filter weiter (kein erneuter Durchlauf beim Async-Dispatch)
+                request.getAsyncContext().addListener(new AsyncListener() {
+                    @Override
+                    public void onComplete(AsyncEvent event) {
+                        admission.release();
+                    }
+
+                    @Override
+                    public void onTimeout(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onError(AsyncEvent event) {
+                    }
+
+                    @Override
+                    public void onStartAsync(AsyncEvent event) {
+                    }
+                });
+            } else {
+                admission.release();
+            }
+        }
+    }
+
+    private static boolean limited(RateLimiter limiter, String key, Counter rejected, HttpServletResponse response)
+            throws IOException {
+        long waitNanos = limiter.tryAcquire(key);
+        if (waitNanos == 0) {
+            return false;
+        }
+        rejected.increment();
+        // Retry-After in ganzen Sekunden, aufgerundet
+        long seconds = Math.max(1, (waitNanos + TimeUnit.SECONDS.toNanos(1) - 1) / TimeUnit.SECONDS.toNanos(1));
+        reject(response, 429, seconds, TOO_MANY_REQUESTS_BODY);
+        return true;
+    }
+
+    private static void reject(HttpServletResponse response, int status, long retryAfterSeconds, byte[] body)
+            throws IOException {
+        response.setStatus(status);
+        response.setHeader(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds));
+        response.setContentType(MediaType.APPLICATION_JSON_VALUE);
+        response.getOutputStream().write(body);
+    }
+}
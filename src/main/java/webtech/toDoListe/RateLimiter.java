@@ -0,0 +1,66 @@
+package webtech.toDoListe;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.LongSupplier;
+
+/**
+ * Token-Bucket als GCRA (Generic Cell Rate Algorithm): je Schlüssel nur ein AtomicLong mit dem
+ * theoretischen Ankunftszeitpunkt (TAT) der nächsten Anfrage, aktualisiert per CAS ohne Lock.
+ * Erlaubt im Mittel perSecond Anfragen pro Sekunde und Spitzen bis burst Anfragen am Stück.
+ * Unbenutzte Schlüssel fallen nach Ablauf aus dem Cache, ein leerer Bucket ist dann ohnehin wieder voll.
+ */
+public class RateLimiter {
+
+    private final String name;
+    private final long interval;
+    private final long tolerance;
+    private final LongSupplier clock;
+    private final Cache<String, AtomicLong> buckets;
+
+    public RateLimiter(String name, double perSecond, int burst, long maxKeys) {
+        this(name, perSecond, burst, maxKeys, System::nanoTime);
+    }
+
+    RateLimiter(String name, double perSecond, int burst, long maxKeys, LongSupplier clock) {
+        if (perSecond <= 0 || burst < 1) {
+            throw new IllegalArgumentException("Ungültiges Limit für " + name + ": " + perSecond + "/s, Burst " + burst);
+        }
+        this.name = name;
+        this.interval = (long) (TimeUnit.SECONDS.toNanos(1) / perSecond);
+        this.tolerance = interval * burst;
+        this.clock = clock;
+        this.buckets = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterAccess(Duration.ofNanos(tolerance).plusSeconds(1))
+                .build();
+    }
+
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Nimmt eine Anfrage für key an (Rückgabe 0) oder liefert die Wartezeit in Nanosekunden,
+     * bis wieder eine Anfrage erlaubt ist. Abgelehnte Anfragen verbrauchen nichts.
+     */
+    public long tryAcquire(String key) {
+        AtomicLong tat = buckets.get(key, k -> new AtomicLong(Long.MIN_VALUE));
+        while (true) {
+            long now = clock.getAsLong();
+            long current = tat.get();
+            long next = (current == Long.MIN_VALUE || current - now < 0 ? now : current) + interval;
+            long excess = next - now - tolerance;
+            if (excess > 0) {
+                return excess;
+            }
+            if (tat.compareAndSet(current, next)) {
+                return 0;
+            }
+        }
+    }
+}
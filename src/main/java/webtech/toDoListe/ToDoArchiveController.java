@@ -0,0 +1,38 @@
+package webtech.toDoListe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PathVariable;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RestController;
+
+// archivierte ToDos, nur lesend; die Endpunkte unter /todos sehen das Archiv nicht
+@RestController
+public class ToDoArchiveController {
+
+    @Autowired
+    ToDoArchiveService archive;
+
+    Logger logger = LoggerFactory.getLogger(ToDoArchiveController.class);
+
+    @CrossOrigin
+    @GetMapping("/todos/archive")
+    public ToDoArchivePage getArchive(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                      @RequestParam(required = false) String cursor,
+                                      @RequestParam(defaultValue = "50") int size) {
+        logger.debug("GET /todos/archive cursor={}", cursor);
+        return archive.getPage(owner, cursor, size);
+    }
+
+    @CrossOrigin
+    @GetMapping("/todos/archive/{id}")
+    public ToDoArchiveEntry getArchivedTodo(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                            @PathVariable Long id) {
+        logger.debug("GET /todos/archive/{}", id);
+        return archive.get(owner, id);
+    }
+}
@@ -0,0 +1,78 @@
+package webtech.toDoListe;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.Column;
+import jakarta.persistence.Entity;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Ein vom ToDoArchiveService aus der Haupttabelle verschobener, erledigter Eintrag. Behält die ID des Originals,
+ * damit Links und Client-Caches weiter passen. Wird nur noch gelesen (GET /todos/archive).
+ * Die Tags stehen durch Leerzeichen getrennt in einer Spalte, sie selbst enthalten keine.
+ */
+@Entity
+@Table(indexes = @Index(name = "idx_archive_owner_id", columnList = "owner, id"))
+public class ToDoArchiveEntry {
+
+    @Id
+    private Long id;
+
+    @JsonIgnore
+    @Column(length = 100)
+    private String owner;
+
+    // Längen wie die aus den Constraints abgeleiteten Spalten von ToDoEntry
+    @Column(length = 100)
+    private String name;
+
+    @Column(length = 500)
+    private String description;
+
+    private LocalDateTime dueTime;
+    private boolean done;
+    private long version;
+
+    @Column(length = ToDoEntry.MAX_TAGS * 31)
+    private String tags;
+
+    // letzte Änderung vor dem Archivieren, ungefähr der Zeitpunkt des Erledigens
+    private LocalDateTime modifiedAt;
+    private LocalDateTime archivedAt;
+
+    protected ToDoArchiveEntry() {
+
+    }
+
+    ToDoArchiveEntry(ToDoEntry entry, LocalDateTime archivedAt) {
+        this.id = entry.getId();
+        this.owner = entry.getOwner();
+        this.name = entry.getName();
+        this.description = entry.getDescription();
+        this.dueTime = entry.getDueTime();
+        this.done = entry.isDone();
+        this.version = entry.getVersion() == null ? 0 : entry.getVersion();
+        this.tags = entry.getTags().isEmpty() ? null : String.join(" ", entry.getTags());
+        this.modifiedAt = entry.getModifiedAt();
+        this.archivedAt = archivedAt;
+    }
+
+    public Long getId() { return id; }
+    public String getOwner() { return owner; }
+    public String getName() { return name; }
+    public String getDescription() { return description; }
+    public LocalDateTime getDueTime() { return dueTime; }
+    public boolean isDone() { return done; }
+    public long getVersion() { return version; }
+    public LocalDateTime getModifiedAt() { return modifiedAt; }
+    public LocalDateTime getArchivedAt() { return archivedAt; }
+
+    public List<String> getTags() {
+        return tags == null ? List.of() : Arrays.asList(tags.split(" "));
+    }
+}
@@ -0,0 +1,17 @@
+package webtech.toDoListe;
+
+import org.springframework.data.domain.Limit;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+import java.util.Optional;
+
+public interface ToDoArchiveRepository extends CrudRepository<ToDoArchiveEntry, Long> {
+
+    Optional<ToDoArchiveEntry> findByIdAndOwner(Long id, String owner);
+
+    // Keyset-Seiten über den Index (owner, id), neueste IDs zuerst
+    List<ToDoArchiveEntry> findByOwnerOrderByIdDesc(String owner, Limit limit);
+
+    List<ToDoArchiveEntry> findByOwnerAndIdLessThanOrderByIdDesc(String owner, Long id, Limit limit);
+}
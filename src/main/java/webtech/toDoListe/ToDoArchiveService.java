@@ -0,0 +1,198 @@
+package webtech.toDoListe;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verschiebt erledigte Einträge, die seit app.archive.after nicht mehr geändert wurden, in die Archivtabelle,
+ * damit die Haupttabelle und ihre Indizes klein bleiben. GET /todos und die Abfragen per ID sehen nur noch
+ * die Haupttabelle, das Archiv ist über GET /todos/archive nur lesbar.
+ * Jeder Block ist eine eigene kurze Transaktion; die Zeilen sind bis zum Commit gesperrt, damit kein
+ * paralleles Update zwischen Kopieren und Löschen verloren geht. Für Clients ist das Archivieren ein Löschen
+ * (Tombstone, Event, Cache), der Eintrag verschwindet beim nächsten Delta-Sync aus der Liste.
+ */
+@Service
+public class ToDoArchiveService implements MeterBinder {
+
+    @Autowired
+    ToDoEntryRepository repo;
+
+    @Autowired
+    ToDoArchiveRepository archive;
+
+    @Autowired
+    ToDoTombstoneRepository tombstones;
+
+    @Autowired
+    ChangeSequence changeSequence;
+
+    @Autowired
+    ToDoEntryCache cache;
+
+    @Autowired
+    ToDoWriteBehind writeBehind;
+
+    @Autowired
+    ApplicationEventPublisher events;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    Logger logger = LoggerFactory.getLogger(ToDoArchiveService.class);
+
+    private final boolean enabled;
+    private final Duration after;
+    private final int batchSize;
+    private final Duration pause;
+    private final AtomicLong archived = new AtomicLong();
+
+    public ToDoArchiveService(@Value("${app.archive.enabled:true}") boolean enabled,
+                              @Value("${app.archive.after:P30D}") Duration after,
+                              @Value("${app.archive.batch-size:500}") int batchSize,
+                              @Value("${app.archive.pause:PT0.2S}") Duration pause) {
+        this.enabled = enabled;
+        this.after = after;
+        this.batchSize = Math.clamp(batchSize, 1, ToDoEntryService.MAX_BATCH_SIZE);
+        this.pause = pause;
+    }
+
+    /**
+     * Archiviert Block für Block, bis nichts Altes mehr übrig ist. Zwischen den Blöcken wird kurz pausiert,
+     * damit Requests nicht lange auf Verbindungen aus dem Pool oder auf gesperrte Zeilen warten.
+     */
+    @Scheduled(fixedDelayString = "${app.archive.interval:PT1H}", initialDelayString = "${app.archive.initial-delay:PT5M}")
+    public void archiveOld() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(after);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        long total = 0;
+        try {
+            // weiter, solange ein voller Block kam; übersprungene Einträge liegen vor lastId und bremsen nicht
+            Batch batch = new Batch(0, 0, 0L);
+            do {
+                long afterId = batch.lastId();
+                batch = transaction.execute(status -> archiveBatch(cutoff, afterId));
+                total += batch.moved();
+                if (batch.found() == batchSize && !pause.isZero()) {
+                    Thread.sleep(pause);
+                }
+            } while (batch.found() == batchSize);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (RuntimeException e) {
+            logger.warn("Archivieren nach {} Einträgen abgebrochen, nächster Versuch beim nächsten Lauf", total, e);
+        }
+        if (total > 0) {
+            logger.info("{} erledigte Einträge archiviert (unverändert seit {})", total, cutoff);
+        }
+    }
+
+    // gelesene und verschobene Einträge eines Blocks, lastId ist die Startposition des nächsten
+    record Batch(int found, int moved, long lastId) {
+    }
+
+    // ein Block in der laufenden Transaktion, beginnend hinter der ID afterId
+    Batch archiveBatch(LocalDateTime cutoff, long afterId) {
+        List<ToDoEntry> entries = repo.findArchivable(cutoff, afterId, Limit.of(batchSize));
+        if (entries.isEmpty()) {
+            return new Batch(0, 0, afterId);
+        }
+        long lastId = entries.getLast().getId();
+        LocalDateTime now = LocalDateTime.now();
+        List<Long> ids = new ArrayList<>(entries.size());
+        Map<String, List<Long>> byOwner = new LinkedHashMap<>();
+        for (ToDoEntry entry : entries) {
+            // eine angenommene, noch nicht geschriebene Umschaltung (z.B. wieder geöffnet, 202) hat Vorrang;
+            // der Eintrag kommt frühestens nach dem nächsten Flush wieder in Frage
+            if (writeBehind.pendingDone(entry.getId()) != null) {
+                continue;
+            }
+            // persist statt save: die ID ist schon gesetzt, save würde vorher jede Zeile per SELECT suchen
+            entityManager.persist(new ToDoArchiveEntry(entry, now));
+            ids.add(entry.getId());
+            byOwner.computeIfAbsent(entry.getOwner(), owner -> new ArrayList<>()).add(entry.getId());
+        }
+        if (ids.isEmpty()) {
+            return new Batch(entries.size(), 0, lastId);
+        }
+        // die Tag-Zeilen löscht die DB über ON DELETE CASCADE mit
+        repo.deleteAllByIdIn(ids);
+
+        // wie deleteAll: eine Änderungsnummer je Besitzer und Block
+        List<ToDoTombstone> archivedEntries = new ArrayList<>(ids.size());
+        byOwner.forEach((owner, ownerIds) -> {
+            long changeSeq = changeSequence.next(owner);
+            for (Long id : ownerIds) {
+                archivedEntries.add(new ToDoTombstone(owner, id, changeSeq));
+                cache.evict(owner, id);
+                events.publishEvent(ToDoChangeEvent.deleted(owner, id, changeSeq));
+            }
+        });
+        tombstones.saveAll(archivedEntries);
+        archived.addAndGet(ids.size());
+        return new Batch(entries.size(), ids.size(), lastId);
+    }
+
+    @Transactional(readOnly = true)
+    public ToDoArchiveEntry get(String owner, Long id) {
+        return archive.findByIdAndOwner(id, owner).orElseThrow(() -> new ToDoNotFoundException(id));
+    }
+
+    /**
+     * Archivierte Einträge, neueste IDs zuerst. Der Cursor ist die letzte ID der vorigen Seite.
+     */
+    @Transactional(readOnly = true)
+    public ToDoArchivePage getPage(String owner, String cursor, int size) {
+        int limit = Math.clamp(size, 1, ToDoEntryService.MAX_PAGE_SIZE);
+        List<ToDoArchiveEntry> items;
+        if (cursor == null || cursor.isBlank()) {
+            items = archive.findByOwnerOrderByIdDesc(owner, Limit.of(limit + 1));
+        } else {
+            try {
+                items = archive.findByOwnerAndIdLessThanOrderByIdDesc(owner, Long.valueOf(cursor), Limit.of(limit + 1));
+            } catch (NumberFormatException e) {
+                throw new IllegalArgumentException("Ungültiger Cursor: " + cursor);
+            }
+        }
+        // eine Zeile mehr gelesen, um zu wissen, ob es eine weitere Seite gibt
+        if (items.size() <= limit) {
+            return new ToDoArchivePage(items, null);
+        }
+        items = items.subList(0, limit);
+        return new ToDoArchivePage(items, String.valueOf(items.get(limit - 1).getId()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("todos.archive.archived", archived, AtomicLong::get)
+                .description("In die Archivtabelle verschobene erledigte Einträge")
+                .register(registry);
+    }
+}
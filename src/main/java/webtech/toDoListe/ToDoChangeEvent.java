@@ -0,0 +1,27 @@
+package webtech.toDoListe;
+
+/**
+ * Wird vom ToDoEntryService nach jedem Schreibzugriff veröffentlicht.
+ * Bei vollständigen Schreibzugriffen ist entry gesetzt, bei PATCH nur patch, beim Löschen keins von beiden.
+ * Die Änderungsnummer zählt je Besitzer, siehe ChangeSequence.
+ */
+public record ToDoChangeEvent(Type type, String owner, long changeSeq, Long id, ToDoEntry entry, ToDoPatch patch) {
+
+    public enum Type { CREATED, UPDATED, DELETED }
+
+    static ToDoChangeEvent created(ToDoEntry entry) {
+        return new ToDoChangeEvent(Type.CREATED, entry.getOwner(), entry.getChangeSeq(), entry.getId(), entry, null);
+    }
+
+    static ToDoChangeEvent updated(ToDoEntry entry) {
+        return new ToDoChangeEvent(Type.UPDATED, entry.getOwner(), entry.getChangeSeq(), entry.getId(), entry, null);
+    }
+
+    static ToDoChangeEvent patched(String owner, Long id, ToDoPatch patch, long changeSeq) {
+        return new ToDoChangeEvent(Type.UPDATED, owner, changeSeq, id, null, patch);
+    }
+
+    static ToDoChangeEvent deleted(String owner, Long id, long changeSeq) {
+        return new ToDoChangeEvent(Type.DELETED, owner, changeSeq, id, null, null);
+    }
+}
@@ -0,0 +1,7 @@
+package webtech.toDoListe;
+
+import java.util.List;
+
+// Antwort von GET /todos/changes, highWaterMark ist das since für den nächsten Abruf
+public record ToDoChanges(List<ToDoEntry> upserts, List<Long> deletedIds, long highWaterMark) {
+}
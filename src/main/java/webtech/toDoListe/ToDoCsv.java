@@ -0,0 +1,118 @@
+package webtech.toDoListe;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.io.Writer;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Minimaler CSV-Leser und -Schreiber nach RFC 4180 (Komma, Felder in "..." mit "" als Anführungszeichen,
+ * Zeilenumbrüche in Feldern erlaubt). Liest Datensatz für Datensatz, die Datei wird nie ganz geladen.
+ */
+class ToDoCsv {
+
+    static final List<String> COLUMNS = List.of("id", "name", "description", "dueTime", "done", "tags");
+
+    private final Reader in;
+    private final StringBuilder field = new StringBuilder();
+    private long line = 1;
+    // Zeile in der Datei, in der der zuletzt gelesene Datensatz beginnt
+    private long recordLine;
+    // ein vorausgelesenes Zeichen nach einem Anführungszeichen, -2 = keins
+    private int peeked = -2;
+
+    ToDoCsv(Reader in) {
+        this.in = in;
+    }
+
+    long recordLine() {
+        return recordLine;
+    }
+
+    /**
+     * Nächster Datensatz oder null am Dateiende. Leere Zeilen werden übersprungen.
+     */
+    List<String> read() throws IOException {
+        List<String> record = new ArrayList<>();
+        field.setLength(0);
+        boolean quoted = false;
+        boolean empty = true;
+        recordLine = line;
+        int c;
+        while ((c = next()) != -1) {
+            if (quoted) {
+                if (c == '"') {
+                    int next = next();
+                    if (next == '"') {
+                        field.append('"');
+                        continue;
+                    }
+                    quoted = false;
+                    peeked = next;
+                    continue;
+                } else {
+                    if (c == '\n') {
+                        line++;
+                    }
+                    field.append((char) c);
+                    continue;
+                }
+            }
+            if (c == '"' && field.isEmpty()) {
+                quoted = true;
+                empty = false;
+            } else if (c == ',') {
+                record.add(field.toString());
+                field.setLength(0);
+                empty = false;
+            } else if (c == '\n') {
+                line++;
+                if (empty && field.isEmpty()) {
+                    recordLine = line;
+                    continue;
+                }
+                record.add(field.toString());
+                return record;
+            } else if (c != '\r') {
+                field.append((char) c);
+                empty = false;
+            }
+        }
+        if (empty && field.isEmpty() && record.isEmpty()) {
+            return null;
+        }
+        record.add(field.toString());
+        return record;
+    }
+
+    private int next() throws IOException {
+        if (peeked != -2) {
+            int c = peeked;
+            peeked = -2;
+            return c;
+        }
+        return in.read();
+    }
+
+    static void write(Writer out, List<String> values) throws IOException {
+        for (int i = 0; i < values.size(); i++) {
+            if (i > 0) {
+                out.write(',');
+            }
+            String value = values.get(i);
+            if (value == null) {
+                continue;
+            }
+            if (value.indexOf(',') >= 0 || value.indexOf('"') >= 0 || value.indexOf('\n') >= 0
+                    || value.indexOf('\r') >= 0) {
+                out.write('"');
+                out.write(value.replace("\"", "\"\""));
+                out.write('"');
+            } else {
+                out.write(value);
+            }
+        }
+        out.write("\r\n");
+    }
+}
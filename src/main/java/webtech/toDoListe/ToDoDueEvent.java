@@ -0,0 +1,7 @@
+package webtech.toDoListe;
+
+import java.time.LocalDateTime;
+
+// Wird vom ToDoDueIndex veröffentlicht, sobald das Fälligkeitsdatum eines offenen ToDos erreicht ist
+public record ToDoDueEvent(String owner, Long id, LocalDateTime dueTime) {
+}
@@ -0,0 +1,269 @@
+package webtech.toDoListe;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListSet;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+
+/**
+ * Hält die Fälligkeitsdaten aller offenen ToDos bis zu einem Horizont (Standard 7 Tage) zeitlich sortiert im Speicher.
+ * Geladen wird über den Index (done, dueTime) nur der jeweils neue Zeitbereich, nie die ganze Tabelle.
+ * Ein Tick schaut nur auf den frühesten noch nicht gemeldeten Termin und veröffentlicht für jeden
+ * erreichten Termin ein ToDoDueEvent. Änderungen kommen über die ToDoChangeEvents nach dem Commit.
+ */
+@Component
+public class ToDoDueIndex implements MeterBinder {
+
+    private static final Comparator<Due> BY_DUE_TIME = Comparator.comparing(Due::dueTime).thenComparing(Due::id);
+
+    @Autowired
+    ToDoEntryRepository repo;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    @Autowired
+    ApplicationEventPublisher events;
+
+    Logger logger = LoggerFactory.getLogger(ToDoDueIndex.class);
+
+    private final Duration horizon;
+
+    // alle bekannten offenen Termine je Besitzer, davor liegende sind überfällig
+    private final Map<String, NavigableSet<Due>> byOwner = new ConcurrentHashMap<>();
+    // noch nicht gemeldete Termine über alle Besitzer, der Tick schaut nur auf das erste Element
+    private final NavigableSet<Due> pending = new ConcurrentSkipListSet<>(BY_DUE_TIME);
+    private final Map<Long, Due> tracked = new ConcurrentHashMap<>();
+
+    // bis hierhin sind die Termine aus der DB geladen, null = noch nicht geladen
+    private volatile LocalDateTime loadedUntil;
+    // IDs, zu denen während eines Ladevorgangs ein Event kam; deren Zeilen aus der Abfrage sind evtl. veraltet
+    private volatile Set<Long> touchedWhileLoading;
+    private final AtomicLong fired = new AtomicLong();
+
+    public ToDoDueIndex(@Value("${app.reminders.horizon:P7D}") Duration horizon) {
+        this.horizon = horizon;
+    }
+
+    record Due(String owner, Long id, LocalDateTime dueTime) {
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(20)
+    public void initialLoad() {
+        Thread.ofVirtual().name("due-index").start(this::extend);
+    }
+
+    // schiebt den Horizont weiter und lädt nur den dazugekommenen Zeitbereich nach
+    @Scheduled(fixedRateString = "${app.reminders.refill:PT1H}", initialDelayString = "${app.reminders.refill:PT1H}")
+    public void extend() {
+        LocalDateTime from = loadedUntil;
+        LocalDateTime until = LocalDateTime.now().plus(horizon);
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        try {
+            transaction.executeWithoutResult(status -> {
+                try (Stream<Object[]> rows = from == null
+                        ? repo.streamOpenDueUntil(until)
+                        : repo.streamOpenDueBetween(from, until)) {
+                    load(rows, until);
+                }
+            });
+        } catch (RuntimeException e) {
+            logger.warn("Fälligkeiten konnten nicht geladen werden", e);
+        }
+    }
+
+    // Zeilen: id, owner, dueTime
+    void load(Stream<Object[]> rows, LocalDateTime until) {
+        boolean initial = loadedUntil == null;
+        LocalDateTime now = LocalDateTime.now();
+        Set<Long> touched = ConcurrentHashMap.newKeySet();
+        touchedWhileLoading = touched;
+        try {
+            rows.forEach(row -> {
+                Long id = (Long) row[0];
+                LocalDateTime dueTime = (LocalDateTime) row[2];
+                if (row[1] != null && !touched.contains(id)) {
+                    // beim ersten Laden schon Überfälliges nicht erneut melden, es war es auch schon vor dem Neustart
+                    track(new Due((String) row[1], id, dueTime), !initial || dueTime.isAfter(now));
+                }
+            });
+            loadedUntil = until;
+        } finally {
+            touchedWhileLoading = null;
+        }
+        logger.debug("Fälligkeiten bis {} geladen, {} offene Termine bekannt", until, tracked.size());
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(ToDoChangeEvent event) {
+        Set<Long> touched = touchedWhileLoading;
+        if (touched != null) {
+            touched.add(event.id());
+        }
+        switch (event.type()) {
+            case CREATED, UPDATED -> {
+                ToDoEntry entry = event.entry();
+                if (entry == null) {
+                    // PATCH ohne Termin oder Status ändert nichts an der Fälligkeit
+                    ToDoPatch patch = event.patch();
+                    if (patch == null || (patch.dueTime() == null && patch.done() == null)) {
+                        return;
+                    }
+                    // nur nachladen, wenn Termin oder Status fehlen; ein Write-Behind-Flush erledigt
+                    // sonst jeden zusammengefassten Eintrag mit einem eigenen SELECT
+                    if (Boolean.TRUE.equals(patch.done())) {
+                        untrack(event.id());
+                        return;
+                    }
+                    // im Index stehen nur offene Einträge
+                    boolean knownOpen = tracked.containsKey(event.id());
+                    if (patch.dueTime() != null && (Boolean.FALSE.equals(patch.done()) || knownOpen)) {
+                        update(new Due(event.owner(), event.id(), patch.dueTime()));
+                        return;
+                    }
+                    if (patch.dueTime() == null && knownOpen) {
+                        return;
+                    }
+                    entry = repo.findById(event.id()).orElse(null);
+                }
+                if (entry == null || entry.isDone() || entry.getDueTime() == null) {
+                    untrack(event.id());
+                } else {
+                    update(new Due(event.owner(), event.id(), entry.getDueTime()));
+                }
+            }
+            case DELETED -> untrack(event.id());
+        }
+    }
+
+    // meldet alle erreichten Termine, kostet ohne fällige Termine nur einen Blick auf das erste Element
+    @Scheduled(fixedDelayString = "${app.reminders.tick:PT1S}")
+    public void tick() {
+        LocalDateTime now = LocalDateTime.now();
+        for (Due next : pending) {
+            if (next.dueTime().isAfter(now)) {
+                break;
+            }
+            // remove schlägt fehl, wenn der Termin parallel geändert wurde
+            if (pending.remove(next)) {
+                fired.incrementAndGet();
+                events.publishEvent(new ToDoDueEvent(next.owner(), next.id(), next.dueTime()));
+            }
+        }
+    }
+
+    // überfällige offene ToDos des Besitzers, die am längsten überfälligen zuerst
+    public List<Long> overdue(String owner, int limit) {
+        NavigableSet<Due> dues = byOwner.get(owner);
+        if (dues == null) {
+            return List.of();
+        }
+        return ids(dues.headSet(new Due(owner, Long.MAX_VALUE, LocalDateTime.now()), true), limit);
+    }
+
+    // offene ToDos, die innerhalb von within fällig werden, die nächsten zuerst
+    public List<Long> upcoming(String owner, Duration within, int limit) {
+        if (within.isNegative() || within.compareTo(horizon) > 0) {
+            throw new IllegalArgumentException("Zeitraum muss zwischen 0 und " + horizon + " liegen");
+        }
+        NavigableSet<Due> dues = byOwner.get(owner);
+        if (dues == null) {
+            return List.of();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        return ids(dues.subSet(new Due(owner, Long.MAX_VALUE, now), false,
+                new Due(owner, Long.MAX_VALUE, now.plus(within)), true), limit);
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        FunctionCounter.builder("todos.reminders.fired", fired, AtomicLong::get)
+                .description("Gemeldete fällige ToDos")
+                .register(registry);
+        Gauge.builder("todos.reminders.tracked", tracked, Map::size)
+                .description("Offene Termine im Fälligkeitsindex")
+                .register(registry);
+        Gauge.builder("todos.reminders.pending", pending, Set::size)
+                .description("Noch nicht gemeldete Termine")
+                .register(registry);
+    }
+
+    private synchronized void update(Due due) {
+        LocalDateTime until = loadedUntil;
+        // Termine hinter dem Horizont holt das nächste extend über den Index
+        if (until != null && due.dueTime().isAfter(until)) {
+            untrack(due.id());
+            return;
+        }
+        track(due, due.dueTime().isAfter(LocalDateTime.now()));
+    }
+
+    private synchronized void track(Due due, boolean notify) {
+        Due old = tracked.put(due.id(), due);
+        if (old != null) {
+            remove(old);
+        }
+        dues(due.owner()).add(due);
+        if (notify) {
+            pending.add(due);
+        }
+    }
+
+    private synchronized void untrack(Long id) {
+        Due old = tracked.remove(id);
+        if (old != null) {
+            remove(old);
+        }
+    }
+
+    private void remove(Due due) {
+        pending.remove(due);
+        NavigableSet<Due> dues = byOwner.get(due.owner());
+        if (dues != null) {
+            dues.remove(due);
+        }
+    }
+
+    private NavigableSet<Due> dues(String owner) {
+        return byOwner.computeIfAbsent(owner, o -> new ConcurrentSkipListSet<>(BY_DUE_TIME));
+    }
+
+    private static List<Long> ids(NavigableSet<Due> dues, int limit) {
+        List<Long> ids = new ArrayList<>(Math.min(limit, dues.size()));
+        for (Due due : dues) {
+            if (ids.size() == limit) {
+                break;
+            }
+            ids.add(due.id());
+        }
+        return ids;
+    }
+}
@@ -1,33 +1,123 @@
 package webtech.toDoListe;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import jakarta.persistence.CollectionTable;
+import jakarta.persistence.Column;
+import jakarta.persistence.ElementCollection;
 import jakarta.persistence.Entity;
+import jakarta.persistence.FetchType;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.JoinColumn;
+import jakarta.persistence.PrePersist;
+import jakarta.persistence.PreUpdate;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
+import jakarta.persistence.Version;
 import jakarta.validation.constraints.Future;
 import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
 import jakarta.validation.constraints.Size;
+import jakarta.validation.groups.Default;
+import org.hibernate.annotations.BatchSize;
+import org.hibernate.annotations.OnDelete;
+import org.hibernate.annotations.OnDeleteAction;
+import org.hibernate.annotations.SortNatural;
 
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Locale;
+import java.util.SortedSet;
+import java.util.TreeSet;
 
 @Entity
+// Abfragen der Benutzer sind auf den Besitzer eingeschränkt, deshalb steht owner in deren Indizes vorne
+@Table(indexes = {
+        @Index(name = "idx_todo_owner_done_due", columnList = "owner, done, dueTime"),
+        @Index(name = "idx_todo_owner_change_seq", columnList = "owner, changeSeq"),
+        @Index(name = "idx_todo_owner_id", columnList = "owner, id"),
+        // ohne Besitzer, für das Nachladen der Fälligkeiten im ToDoDueIndex
+        @Index(name = "idx_todo_done_due", columnList = "done, dueTime"),
+        // für den ToDoArchiveService: erledigte Einträge nach letzter Änderung
+        @Index(name = "idx_todo_done_modified", columnList = "done, modifiedAt")
+})
 public class ToDoEntry {
 
-   @Id
-   @GeneratedValue(strategy = GenerationType.IDENTITY)
+    static final int MAX_TAGS = 20;
+    static final String TAG_PATTERN = "[\\p{L}\\p{N}_-]{1,30}";
+    static final String ID_SEQUENCE = "to_do_entry_seq";
+    static final int ID_ALLOCATION_SIZE = 50;
+
+    /**
+     * Regeln, die auch für bestehende Daten gelten: beim Import und beim Speichern über JPA.
+     * Ohne @Future, denn ein überfälliger oder erledigter Eintrag hat zu Recht ein Datum in der Vergangenheit;
+     * neue Eingaben über die API werden weiter mit allen Regeln (Default) geprüft.
+     */
+    public interface Stored {
+    }
+
+    // Sequence statt IDENTITY, damit Hibernate Inserts per JDBC-Batch schicken kann (50 IDs pro DB-Aufruf)
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "todo_seq")
+    @SequenceGenerator(name = "todo_seq", sequenceName = ID_SEQUENCE, allocationSize = ID_ALLOCATION_SIZE)
     private Long id;
 
-    @NotBlank(message = "Name darf nicht leer sein")
-    @Size(min = 3, max = 100, message = "Name muss zwischen 3 und 100 Zeichen lang sein")
+    @NotBlank(message = "Name darf nicht leer sein", groups = {Default.class, Stored.class})
+    @Size(min = 3, max = 100, message = "Name muss zwischen 3 und 100 Zeichen lang sein", groups = {Default.class, Stored.class})
     private String name;
 
-    @Size(max = 500, message = "Beschreibung darf maximal 500 Zeichen lang sein")
+    @Size(max = 500, message = "Beschreibung darf maximal 500 Zeichen lang sein", groups = {Default.class, Stored.class})
     private String description;
 
     @Future(message = "Fälligkeitsdatum muss in der Zukunft liegen")
     private LocalDateTime dueTime;
     private boolean done;
 
+    // Revision für optimistisches Locking, wird als ETag ausgeliefert (default 0 für bestehende Zeilen)
+    @Version
+    @Column(columnDefinition = "bigint default 0 not null")
+    private Long version;
+
+    // Änderungsnummer des letzten Schreibzugriffs, siehe ChangeSequence
+    @Column(columnDefinition = "bigint default 0 not null")
+    private Long changeSeq;
+
+    // Benutzername aus dem Token, wird nie vom Client übernommen
+    @JsonIgnore
+    @Column(length = 100)
+    private String owner;
+
+    // Zeitpunkt der letzten Änderung, bestimmt wann ein erledigter Eintrag archiviert wird.
+    // Die Bulk-UPDATEs im Repository setzen ihn selbst, bestehende Zeilen bekommen beim Anlegen der Spalte "jetzt"
+    @JsonIgnore
+    @Column(columnDefinition = "timestamp(6) default current_timestamp")
+    private LocalDateTime modifiedAt;
+
+    // done stammt aus einer noch nicht geschriebenen Write-Behind-Umschaltung, version ist dann noch die alte
+    @Transient
+    @JsonIgnore
+    private boolean donePending;
+
+    /*
+     * Tags in eigener Tabelle todo_tag(todo_id, tag). Listen laden die Tags über @BatchSize mit einem SELECT
+     * je 500 Einträge statt einem pro Eintrag. Das FK löscht die Tags mit dem Eintrag, auch bei den
+     * Bulk-DELETEs im Repository. null heißt "nicht angegeben" (PUT lässt die Tags dann unverändert).
+     */
+    @ElementCollection(fetch = FetchType.EAGER)
+    @CollectionTable(name = "todo_tag", joinColumns = @JoinColumn(name = "todo_id"),
+            indexes = @Index(name = "idx_todo_tag_tag", columnList = "tag"))
+    @Column(name = "tag", length = 30, nullable = false)
+    @OnDelete(action = OnDeleteAction.CASCADE)
+    @BatchSize(size = 500)
+    @SortNatural
+    @Size(max = MAX_TAGS, message = "Maximal " + MAX_TAGS + " Tags pro ToDo", groups = {Default.class, Stored.class})
+    private SortedSet<@Pattern(regexp = TAG_PATTERN, message = "Tags bestehen aus 1 bis 30 Buchstaben, Ziffern, - oder _",
+            groups = {Default.class, Stored.class}) String> tags;
+
     public ToDoEntry(){
 
     }
@@ -46,12 +136,57 @@ public class ToDoEntry {
     public String getDescription() { return description; }
     public LocalDateTime getDueTime() { return dueTime; }
     public boolean isDone() { return done; }
+    public Long getVersion() { return version; }
+    public Long getChangeSeq() { return changeSeq; }
+    public String getOwner() { return owner; }
+    public LocalDateTime getModifiedAt() { return modifiedAt; }
+    public boolean isDonePending() { return donePending; }
+    public SortedSet<String> getTags() { return tags == null ? Collections.emptySortedSet() : tags; }
 
     public void setId(Long id) { this.id = id; }
     public void setName(String name) { this.name = name; }
     public void setDescription(String description) { this.description = description; }
     public void setDueTime(LocalDateTime dueTime) { this.dueTime = dueTime; }
     public void setDone(boolean done) { this.done = done; }
+    public void setVersion(Long version) { this.version = version; }
+    public void setChangeSeq(Long changeSeq) { this.changeSeq = changeSeq; }
+    public void setOwner(String owner) { this.owner = owner; }
+    public void setModifiedAt(LocalDateTime modifiedAt) { this.modifiedAt = modifiedAt; }
+    public void setDonePending(boolean donePending) { this.donePending = donePending; }
+    public void setTags(Collection<String> tags) { this.tags = normalizeTags(tags); }
+
+    @PrePersist
+    @PreUpdate
+    void touch() {
+        modifiedAt = LocalDateTime.now();
+    }
+
+    // unabhängige Kopie (auch der Tags), z.B. für gecachte Antworten, die sich nicht mehr ändern dürfen
+    ToDoEntry copy() {
+        ToDoEntry copy = new ToDoEntry(name, description, dueTime, done);
+        copy.id = id;
+        copy.version = version;
+        copy.changeSeq = changeSeq;
+        copy.owner = owner;
+        copy.modifiedAt = modifiedAt;
+        copy.tags = tags == null ? null : new TreeSet<>(tags);
+        return copy;
+    }
+
+    // false, wenn der Client keine Tags mitgeschickt hat
+    boolean hasTags() { return tags != null; }
+
+    // Tags ohne Leerzeichen am Rand und kleingeschrieben, damit "Arbeit" und "arbeit" derselbe Tag sind
+    static SortedSet<String> normalizeTags(Collection<String> tags) {
+        if (tags == null) {
+            return null;
+        }
+        SortedSet<String> normalized = new TreeSet<>();
+        for (String tag : tags) {
+            normalized.add(tag == null ? "" : tag.trim().toLowerCase(Locale.ROOT));
+        }
+        return normalized;
+    }
 }
 
 
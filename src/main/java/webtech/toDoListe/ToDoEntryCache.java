@@ -0,0 +1,152 @@
+package webtech.toDoListe;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import io.micrometer.core.instrument.binder.cache.CaffeineCacheMetrics;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Function;
+import java.util.function.Supplier;
+import java.util.function.UnaryOperator;
+
+/**
+ * In-Process-Cache vor dem Repository: einzelne Einträge nach ID (Größe + TTL begrenzt)
+ * und optional ein Snapshot der Liste je Benutzer, der bei Schreibzugriffen Eintrag für Eintrag
+ * nachgezogen statt komplett verworfen wird.
+ * Änderungen innerhalb einer Transaktion werden erst nach dem Commit übernommen.
+ */
+@Component
+public class ToDoEntryCache implements MeterBinder {
+
+    private final Cache<Long, ToDoEntry> entries;
+    private final boolean snapshotEnabled;
+
+    // Besitzer -> Einträge nach ID, fehlt der Besitzer, ist sein Snapshot nicht geladen oder abgelaufen
+    private final Cache<String, ConcurrentSkipListMap<Long, ToDoEntry>> snapshots;
+    // zählt Schreibzugriffe je Besitzer, damit ein parallel geladener Snapshot nicht veraltet installiert wird;
+    // Schreibzugriffe anderer Benutzer verhindern das Installieren nicht
+    private final Map<String, AtomicLong> writes = new ConcurrentHashMap<>();
+
+    public ToDoEntryCache(@Value("${app.cache.todos.max-size:10000}") long maxSize,
+                          @Value("${app.cache.todos.ttl:PT10M}") Duration ttl,
+                          @Value("${app.cache.todos.snapshot:false}") boolean snapshotEnabled) {
+        this.entries = Caffeine.newBuilder()
+                .maximumSize(maxSize)
+                .expireAfterWrite(ttl)
+                .recordStats()
+                .build();
+        this.snapshotEnabled = snapshotEnabled;
+        // ein Snapshot hält alle Einträge eines Benutzers, daher nur wenige Benutzer gleichzeitig
+        this.snapshots = Caffeine.newBuilder()
+                .maximumSize(Math.max(1, maxSize / 100))
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    // liefert null, wenn auch der Loader nichts findet (wird dann nicht gecacht)
+    public ToDoEntry get(Long id, Function<Long, ToDoEntry> loader) {
+        return entries.get(id, loader);
+    }
+
+    public List<ToDoEntry> getAll(String owner, Supplier<List<ToDoEntry>> loader) {
+        if (!snapshotEnabled) {
+            return loader.get();
+        }
+        ConcurrentSkipListMap<Long, ToDoEntry> current = snapshots.getIfPresent(owner);
+        if (current != null) {
+            return new ArrayList<>(current.values());
+        }
+
+        AtomicLong ownerWrites = writes(owner);
+        long writesBefore = ownerWrites.get();
+        List<ToDoEntry> loaded = loader.get();
+        ConcurrentSkipListMap<Long, ToDoEntry> fresh = new ConcurrentSkipListMap<>();
+        for (ToDoEntry e : loaded) {
+            fresh.put(e.getId(), e);
+        }
+        synchronized (this) {
+            if (ownerWrites.get() == writesBefore) {
+                snapshots.put(owner, fresh);
+            }
+        }
+        return loaded;
+    }
+
+    public void put(ToDoEntry entry) {
+        afterCommit(entry.getOwner(), () -> {
+            entries.put(entry.getId(), entry);
+            ConcurrentSkipListMap<Long, ToDoEntry> current = snapshots.getIfPresent(entry.getOwner());
+            if (current != null) {
+                current.put(entry.getId(), entry);
+            }
+        });
+    }
+
+    // ändert einen bereits gecachten Eintrag, ohne ihn aus Cache oder Snapshot zu werfen
+    public void update(String owner, Long id, UnaryOperator<ToDoEntry> change) {
+        afterCommit(owner, () -> {
+            entries.asMap().computeIfPresent(id, (key, entry) -> change.apply(entry));
+            ConcurrentSkipListMap<Long, ToDoEntry> current = snapshots.getIfPresent(owner);
+            if (current != null) {
+                current.computeIfPresent(id, (key, entry) -> change.apply(entry));
+            }
+        });
+    }
+
+    public void evict(String owner, Long id) {
+        afterCommit(owner, () -> {
+            entries.invalidate(id);
+            ConcurrentSkipListMap<Long, ToDoEntry> current = snapshots.getIfPresent(owner);
+            if (current != null) {
+                current.remove(id);
+            }
+        });
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        CaffeineCacheMetrics.monitor(registry, entries, "todos");
+        Gauge.builder("todos.cache.snapshot.size", this,
+                        c -> c.snapshots.asMap().values().stream().mapToInt(Map::size).sum())
+                .description("Anzahl Einträge in allen Listen-Snapshots")
+                .register(registry);
+    }
+
+    private void afterCommit(String owner, Runnable action) {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    applyLocked(owner, action);
+                }
+            });
+        } else {
+            applyLocked(owner, action);
+        }
+    }
+
+    private void applyLocked(String owner, Runnable action) {
+        synchronized (this) {
+            writes(owner).incrementAndGet();
+            action.run();
+        }
+    }
+
+    // ein Zähler je Benutzer, die Zahl der Benutzer ist überschaubar
+    private AtomicLong writes(String owner) {
+        return writes.computeIfAbsent(owner, o -> new AtomicLong());
+    }
+}
@@ -1,59 +1,323 @@
 package webtech.toDoListe;
 
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.ConstraintViolation;
 import jakarta.validation.Valid;
+import jakarta.validation.Validator;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
 
+// alle Endpunkte arbeiten nur auf den ToDos des angemeldeten Benutzers (vom AuthTokenFilter gesetzt)
 @RestController
 public class ToDoEntryController {
 
     @Autowired
     ToDoEntryService service;
 
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    Validator validator;
+
+    @Autowired
+    ToDoImporter importer;
+
+    @Autowired
+    ToDoIdempotencyStore idempotency;
+
     Logger logger = LoggerFactory.getLogger(ToDoEntryController.class);
 
     @CrossOrigin
     @PostMapping("/todos")
-    public ResponseEntity<ToDoEntry> createTodo(@Valid @RequestBody ToDoEntry todo) {  // @Valid hinzugefügt
-        logger.info("POST /todos mit Name={}", todo.getName());
-        ToDoEntry saved = service.save(todo);
+    public ResponseEntity<ToDoEntry> createTodo(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                                @RequestHeader(value = ToDoIdempotencyStore.HEADER, required = false) String idempotencyKey,
+                                                @Valid @RequestBody ToDoEntry todo) {  // @Valid hinzugefügt
+        logger.debug("POST /todos mit Name={}", todo.getName());
+        if (idempotencyKey == null) {
+            ToDoEntry saved = service.save(owner, todo);
+            return ResponseEntity.status(HttpStatus.CREATED).body(saved);
+        }
+        // Wiederholung nach Timeout: gleiche Antwort wie beim ersten Mal, kein zweiter Eintrag
+        ToDoIdempotencyStore.Result result = idempotency.create(owner, idempotencyKey, todo, () -> service.save(owner, todo));
+        return ResponseEntity.status(HttpStatus.CREATED)
+                .header(ToDoIdempotencyStore.REPLAYED_HEADER, String.valueOf(result.replayed()))
+                .body(result.entry());
+    }
+
+    @CrossOrigin
+    @PostMapping("/todos/batch")
+    public ResponseEntity<List<ToDoEntry>> createTodos(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                                       @RequestBody List<ToDoEntry> todos) {
+        logger.debug("POST /todos/batch mit {} Einträgen", todos.size());
+        validateAll(todos);
+        List<ToDoEntry> saved = service.saveAll(owner, todos);
         return ResponseEntity.status(HttpStatus.CREATED).body(saved);
     }
 
+    @CrossOrigin
+    @PatchMapping("/todos/batch")
+    public List<ToDoEntry> updateTodos(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                       @RequestBody List<ToDoEntry> todos) {
+        logger.debug("PATCH /todos/batch mit {} Einträgen", todos.size());
+        validateAll(todos);
+        return service.updateAll(owner, todos);
+    }
+
+    @CrossOrigin
+    @DeleteMapping("/todos/batch")
+    public ResponseEntity<Void> deleteTodos(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                            @RequestParam List<Long> ids) {
+        logger.debug("DELETE /todos/batch mit {} IDs", ids.size());
+        service.deleteAll(owner, ids);
+        return ResponseEntity.noContent().build();
+    }
+
+    // Volltextsuche, jedes Wort wird als Wortanfang gesucht ("einka milch" findet "Einkaufen: Milch")
+    @CrossOrigin
+    @GetMapping("/todos/search")
+    public List<ToDoEntry> searchTodos(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                       @RequestParam String q,
+                                       @RequestParam(defaultValue = "20") int limit) {
+        logger.debug("GET /todos/search?q={}", q);
+        return service.search(owner, q, limit);
+    }
+
+    @CrossOrigin
+    @GetMapping("/todos/overdue")
+    public List<ToDoEntry> getOverdueTodos(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                           @RequestParam(defaultValue = "50") int limit) {
+        logger.debug("GET /todos/overdue");
+        return service.getOverdue(owner, limit);
+    }
+
+    // within als ISO-8601-Dauer, z.B. PT24H oder P3D
+    @CrossOrigin
+    @GetMapping("/todos/upcoming")
+    public List<ToDoEntry> getUpcomingTodos(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                            @RequestParam(defaultValue = "PT24H") String within,
+                                            @RequestParam(defaultValue = "50") int limit) {
+        logger.debug("GET /todos/upcoming?within={}", within);
+        Duration duration;
+        try {
+            duration = Duration.parse(within);
+        } catch (DateTimeParseException e) {
+            throw new IllegalArgumentException("Ungültige Dauer: " + within);
+        }
+        return service.getUpcoming(owner, duration, limit);
+    }
+
     @CrossOrigin
     @GetMapping("/todos/{id}")
-    public ToDoEntry getTodo(@PathVariable String id) {
-        logger.info("GET /todos/{}", id);
+    public ResponseEntity<ToDoEntry> getTodo(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                             @PathVariable String id) {
+        logger.debug("GET /todos/{}", id);
         Long todoId = Long.parseLong(id);
-        return service.get(todoId);
+        ToDoEntry todo = service.get(owner, todoId);
+        // bei ausstehender done-Umschaltung passt die Version nicht zum Inhalt, ohne ETag gibt es dann kein falsches 304
+        if (todo.isDonePending()) {
+            return ResponseEntity.ok().body(todo);
+        }
+        // mit ETag beantwortet Spring ein passendes If-None-Match selbst mit 304 ohne Body
+        return ResponseEntity.ok().eTag(ETags.of(todo)).body(todo);
     }
 
     @CrossOrigin
     @GetMapping("/todos")
-    public List<ToDoEntry> getAllTodos() {
-        logger.info("GET /todos (alle)");
-        return service.getAll();
+    public ResponseEntity<List<ToDoEntry>> getAllTodos(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner) {
+        logger.debug("GET /todos (alle)");
+        List<ToDoEntry> todos = service.getAll(owner);
+        return ResponseEntity.ok().eTag(ETags.ofList(todos)).body(todos);
+    }
+
+    // nur Einträge mit allen angegebenen Tags: /todos?tag=arbeit&tag=dringend
+    @CrossOrigin
+    @GetMapping(value = "/todos", params = "tag")
+    public List<ToDoEntry> getTodosByTag(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                         @RequestParam List<String> tag) {
+        logger.debug("GET /todos?tag={}", tag);
+        return service.getByTags(owner, tag);
+    }
+
+    @CrossOrigin
+    @GetMapping("/todos/tags")
+    public List<ToDoTagCount> getTagCounts(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner) {
+        logger.debug("GET /todos/tags");
+        return service.getTagCounts(owner);
+    }
+
+    // schlanke Listenansicht: view=summary (ohne Beschreibung) oder fields=id,name,done
+    @CrossOrigin
+    @GetMapping(value = "/todos", params = "view=summary")
+    public List<ToDoSummary> getTodoSummaries(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner) {
+        logger.debug("GET /todos?view=summary");
+        return service.getSummaries(owner);
+    }
+
+    @CrossOrigin
+    @GetMapping(value = "/todos", params = "fields")
+    public List<Map<String, Object>> getTodoFields(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                                   @RequestParam List<String> fields) {
+        logger.debug("GET /todos?fields={}", fields);
+        return service.getFields(owner, fields);
+    }
+
+    @CrossOrigin
+    @GetMapping("/todos/page")
+    public ToDoPage getTodoPage(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                @RequestParam(required = false) Boolean done,
+                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueFrom,
+                                @RequestParam(required = false) @DateTimeFormat(iso = DateTimeFormat.ISO.DATE_TIME) LocalDateTime dueTo,
+                                @RequestParam(defaultValue = "id") String sort,
+                                @RequestParam(defaultValue = "ASC") Sort.Direction direction,
+                                @RequestParam(required = false) String cursor,
+                                @RequestParam(defaultValue = "50") int size) {
+        logger.debug("GET /todos/page sort={} cursor={}", sort, cursor);
+        return service.getPage(owner, done, dueFrom, dueTo, sort, direction, cursor, size);
+    }
+
+    // Delta-Sync: ohne since kommt der komplette Stand, danach die highWaterMark der letzten Antwort mitschicken
+    @CrossOrigin
+    @GetMapping("/todos/changes")
+    public ToDoChanges getChanges(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                  @RequestParam(defaultValue = "-1") long since) {
+        logger.debug("GET /todos/changes?since={}", since);
+        return service.getChanges(owner, since);
+    }
+
+    // NDJSON: ein Eintrag pro Zeile, direkt aus dem DB-Cursor geschrieben
+    @CrossOrigin
+    @GetMapping(value = "/todos/stream", produces = "application/x-ndjson")
+    public ResponseEntity<StreamingResponseBody> streamTodos(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner) {
+        logger.debug("GET /todos/stream");
+        StreamingResponseBody body = out -> {
+            JsonGenerator generator = objectMapper.createGenerator(out);
+            generator.setRootValueSeparator(null);
+            service.streamAll(owner, entry -> {
+                try {
+                    generator.writeObject(entry);
+                    generator.writeRaw('\n');
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            });
+            generator.flush();
+        };
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType("application/x-ndjson"))
+                .body(body);
+    }
+
+    // Import großer Dateien: CSV mit Kopfzeile (name,description,dueTime,done,tags) oder NDJSON, zeilenweise gelesen
+    @CrossOrigin
+    @PostMapping(value = "/todos/import", consumes = {"text/csv", "application/x-ndjson"})
+    public ToDoImporter.Result importTodos(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                           @RequestHeader(HttpHeaders.CONTENT_TYPE) String contentType,
+                                           InputStream body) throws IOException {
+        logger.debug("POST /todos/import als {}", contentType);
+        ToDoImporter.Format format = MediaType.parseMediaType(contentType).isCompatibleWith(MediaType.parseMediaType("text/csv"))
+                ? ToDoImporter.Format.CSV
+                : ToDoImporter.Format.NDJSON;
+        return importer.importEntries(owner, format, body);
+    }
+
+    // Export als Datei, direkt aus dem DB-Cursor; CSV in den Spalten, die der Import erwartet
+    @CrossOrigin
+    @GetMapping("/todos/export")
+    public ResponseEntity<StreamingResponseBody> exportTodos(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                                             @RequestParam(defaultValue = "csv") String format) {
+        logger.debug("GET /todos/export?format={}", format);
+        ToDoImporter.Format exportFormat = ToDoImporter.Format.of(format);
+        StreamingResponseBody body = exportFormat == ToDoImporter.Format.CSV
+                ? out -> importer.exportCsv(owner, out)
+                : streamTodos(owner).getBody();
+        return ResponseEntity.ok()
+                .contentType(exportFormat == ToDoImporter.Format.CSV
+                        ? MediaType.parseMediaType("text/csv;charset=UTF-8")
+                        : MediaType.parseMediaType("application/x-ndjson"))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("todos." + exportFormat.name().toLowerCase(Locale.ROOT)).build().toString())
+                .body(body);
     }
 
     @CrossOrigin
     @PutMapping("/todos/{id}")
-    public ResponseEntity<ToDoEntry> updateTodo(@PathVariable Long id, @Valid @RequestBody ToDoEntry todo) {  // @Valid
-        logger.info("PUT /todos/{}", id);
-        ToDoEntry updated = service.update(id, todo);
-        return ResponseEntity.ok(updated);
+    public ResponseEntity<ToDoEntry> updateTodo(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                                @PathVariable Long id, @Valid @RequestBody ToDoEntry todo,  // @Valid
+                                                @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        logger.debug("PUT /todos/{}", id);
+        Long expectedVersion = ETags.parseIfMatch(ifMatch);
+        if (expectedVersion == null) {
+            // 202: done-Umschaltung steht im Write-Behind-Log, die DB folgt beim nächsten Flush
+            ToDoEntry deferred = service.updateDeferred(owner, id, todo);
+            if (deferred != null) {
+                return ResponseEntity.accepted().body(deferred);
+            }
+        }
+        ToDoEntry updated = service.update(owner, id, todo, expectedVersion);
+        return ResponseEntity.ok().eTag(ETags.of(updated)).body(updated);
+    }
+
+    @CrossOrigin
+    @PatchMapping("/todos/{id}")
+    public ResponseEntity<Void> patchTodo(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                          @PathVariable Long id, @Valid @RequestBody ToDoPatch patch,
+                                          @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        logger.debug("PATCH /todos/{}", id);
+        Long expectedVersion = ETags.parseIfMatch(ifMatch);
+        if (expectedVersion == null && service.patchDeferred(owner, id, patch)) {
+            return ResponseEntity.accepted().build();
+        }
+        Long version = service.patch(owner, id, patch, expectedVersion);
+        ResponseEntity.HeadersBuilder<?> response = ResponseEntity.noContent();
+        if (version != null) {
+            response.eTag(ETags.of(version));
+        }
+        return response.build();
     }
 
     @CrossOrigin
     @DeleteMapping("/todos/{id}")
-    public ResponseEntity<Void> deleteTodo(@PathVariable Long id) {
-        logger.info("DELETE /todos/{}", id);
-        service.delete(id);
+    public ResponseEntity<Void> deleteTodo(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                                           @PathVariable Long id,
+                                           @RequestHeader(value = "If-Match", required = false) String ifMatch) {
+        logger.debug("DELETE /todos/{}", id);
+        service.delete(owner, id, ETags.parseIfMatch(ifMatch));
         return ResponseEntity.noContent().build();
     }
+
+    // @Valid greift bei Listen nicht auf die Elemente, deshalb einzeln prüfen und Fehler mit Index sammeln
+    private void validateAll(List<ToDoEntry> todos) {
+        Map<String, String> errors = new LinkedHashMap<>();
+        for (int i = 0; i < todos.size(); i++) {
+            for (ConstraintViolation<ToDoEntry> violation : validator.validate(todos.get(i))) {
+                errors.put("[" + i + "]." + violation.getPropertyPath(), violation.getMessage());
+            }
+        }
+        if (!errors.isEmpty()) {
+            throw new BatchValidationException(errors);
+        }
+    }
 }
\ No newline at end of file
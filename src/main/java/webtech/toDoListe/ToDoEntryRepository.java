@@ -1,7 +1,135 @@
 package webtech.toDoListe;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.jpa.repository.JpaSpecificationExecutor;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
 import org.springframework.data.repository.CrudRepository;
-import org.springframework.stereotype.Repository;
 
-public interface ToDoEntryRepository extends CrudRepository<ToDoEntry, Long> {
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface ToDoEntryRepository extends CrudRepository<ToDoEntry, Long>, JpaSpecificationExecutor<ToDoEntry> {
+
+    // alle Abfragen laufen über den Besitzer, passend zu den zusammengesetzten Indizes auf ToDoEntry
+    List<ToDoEntry> findByOwnerOrderById(String owner);
+
+    boolean existsByIdAndOwner(Long id, String owner);
+
+    @Query("select max(e.id) from ToDoEntry e")
+    Long findMaxId();
+
+    // Listenansicht: liest nur die Spalten, die ToDoSummary braucht, und legt keine Entities an
+    @Query("select new webtech.toDoListe.ToDoSummary(e.id, e.name, e.dueTime, e.done, e.version) "
+            + "from ToDoEntry e where e.owner = :owner order by e.id")
+    List<ToDoSummary> findSummariesByOwner(String owner);
+
+    // Cursor über alle Einträge eines Benutzers, der Treiber holt immer nur 500 Zeilen auf einmal.
+    // Tags per Join, @BatchSize greift beim zeilenweisen Lesen nicht
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("select e from ToDoEntry e left join fetch e.tags where e.owner = :owner order by e.id")
+    Stream<ToDoEntry> streamByOwner(String owner);
+
+    // nur die Felder für den Suchindex, ohne Entities in den Persistence Context zu laden
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("select e.id, e.owner, e.changeSeq, e.name, e.description from ToDoEntry e")
+    Stream<Object[]> streamSearchFields();
+
+    // Fälligkeiten offener ToDos für den ToDoDueIndex, läuft über idx_todo_done_due
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("select e.id, e.owner, e.dueTime from ToDoEntry e where e.done = false and e.dueTime <= :until")
+    Stream<Object[]> streamOpenDueUntil(LocalDateTime until);
+
+    @QueryHints(@QueryHint(name = "org.hibernate.fetchSize", value = "500"))
+    @Query("select e.id, e.owner, e.dueTime from ToDoEntry e where e.done = false "
+            + "and e.dueTime > :from and e.dueTime <= :until")
+    Stream<Object[]> streamOpenDueBetween(LocalDateTime from, LocalDateTime until);
+
+    // Ersatz für den Suchindex, solange er noch aufgebaut wird (pattern bereits kleingeschrieben und escaped)
+    @Query("select e from ToDoEntry e where e.owner = :owner "
+            + "and (lower(e.name) like :pattern escape '\\' or lower(e.description) like :pattern escape '\\') "
+            + "order by e.id desc")
+    List<ToDoEntry> searchByText(String owner, String pattern, Limit limit);
+
+    // Update und Delete als einzelnes Statement, die Anzahl betroffener Zeilen ersetzt das vorherige SELECT
+    @Modifying
+    @Query("update ToDoEntry e set e.name = :name, e.description = :description, e.dueTime = :dueTime, e.done = :done, "
+            + "e.version = e.version + 1, e.changeSeq = :changeSeq, e.modifiedAt = local datetime where e.id = :id and e.owner = :owner")
+    int updateFields(String owner, Long id, String name, String description, LocalDateTime dueTime, boolean done, long changeSeq);
+
+    // wie updateFields, greift aber nur, wenn die Version noch der per If-Match erwarteten entspricht
+    @Modifying
+    @Query("update ToDoEntry e set e.name = :name, e.description = :description, e.dueTime = :dueTime, e.done = :done, "
+            + "e.version = e.version + 1, e.changeSeq = :changeSeq, e.modifiedAt = local datetime where e.id = :id and e.owner = :owner "
+            + "and e.version = :version")
+    int updateFieldsIfVersion(String owner, Long id, long version, String name, String description,
+                              LocalDateTime dueTime, boolean done, long changeSeq);
+
+    // zusammengefasste done-Umschaltungen aus dem Write-Behind, ein Statement je Wert
+    @Modifying
+    @Query("update ToDoEntry e set e.done = :done, e.version = e.version + 1, e.changeSeq = :changeSeq, e.modifiedAt = local datetime "
+            + "where e.owner = :owner and e.id in :ids")
+    int updateDone(String owner, Collection<Long> ids, boolean done, long changeSeq);
+
+    @Query("select t from ToDoEntry e join e.tags t where e.id = :id")
+    List<String> findTagsById(Long id);
+
+    // Tags ersetzen, ohne den Eintrag zu laden (die UPDATEs oben gehen ebenfalls an der Entity vorbei)
+    @Modifying
+    @Query(value = "delete from todo_tag where todo_id = :id", nativeQuery = true)
+    int deleteTags(Long id);
+
+    @Modifying
+    @Query(value = "insert into todo_tag (todo_id, tag) values (:id, :tag)", nativeQuery = true)
+    int insertTag(Long id, String tag);
+
+    // Anzahl offener und erledigter Einträge je Tag in einer gruppierten Abfrage
+    @Query("select new webtech.toDoListe.ToDoTagCount(t, "
+            + "sum(case when e.done = false then 1L else 0L end), sum(case when e.done = true then 1L else 0L end)) "
+            + "from ToDoEntry e join e.tags t where e.owner = :owner group by t order by t")
+    List<ToDoTagCount> countByTag(String owner);
+
+    @Query("select e.version from ToDoEntry e where e.id = :id")
+    Long findVersionById(Long id);
+
+    @Modifying
+    @Query("delete from ToDoEntry e where e.id = :id and e.owner = :owner")
+    int deleteEntryById(String owner, Long id);
+
+    @Modifying
+    @Query("delete from ToDoEntry e where e.id = :id and e.owner = :owner and e.version = :version")
+    int deleteEntryByIdAndVersion(String owner, Long id, long version);
+
+    @Query("select e.id from ToDoEntry e where e.owner = :owner and e.id in :ids")
+    List<Long> findExistingIds(String owner, Collection<Long> ids);
+
+    // wie findExistingIds, sperrt die Zeilen aber bis zum Commit (SELECT ... FOR UPDATE)
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e.id from ToDoEntry e where e.owner = :owner and e.id in :ids")
+    List<Long> lockExistingIds(String owner, Collection<Long> ids);
+
+    @Query("select e from ToDoEntry e where e.owner = :owner and e.changeSeq > :since and e.changeSeq <= :until "
+            + "order by e.changeSeq")
+    List<ToDoEntry> findChanges(String owner, long since, long until);
+
+    @Modifying
+    @Query("delete from ToDoEntry e where e.id in :ids")
+    int deleteAllByIdIn(Collection<Long> ids);
+
+    // erledigte, seit cutoff unveränderte Einträge für den ToDoArchiveService ab der ID afterId, bis zum Commit
+    // gesperrt, damit kein paralleles Update zwischen Kopieren und Löschen verloren geht
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("select e from ToDoEntry e where e.done = true and e.modifiedAt < :cutoff and e.owner is not null "
+            + "and e.id > :afterId order by e.id")
+    List<ToDoEntry> findArchivable(LocalDateTime cutoff, long afterId, Limit limit);
+
+    @Modifying
+    @Query("update ToDoEntry e set e.owner = :owner where e.owner is null")
+    int assignOwnerWhereMissing(String owner);
 }
@@ -1,51 +1,691 @@
 package webtech.toDoListe;
 
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.Tuple;
+import jakarta.persistence.criteria.CriteriaBuilder;
+import jakarta.persistence.criteria.CriteriaQuery;
+import jakarta.persistence.criteria.CriteriaUpdate;
+import jakarta.persistence.criteria.Join;
+import jakarta.persistence.criteria.Predicate;
+import jakarta.persistence.criteria.Root;
+import jakarta.persistence.criteria.Selection;
+import jakarta.persistence.criteria.Subquery;
+import org.hibernate.dialect.Dialect;
+import org.hibernate.engine.spi.SessionFactoryImplementor;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.data.domain.Limit;
+import org.springframework.data.domain.ScrollPosition;
+import org.springframework.data.domain.Sort;
+import org.springframework.data.domain.Window;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
 
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
 import java.util.ArrayList;
+import java.util.Base64;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.SortedSet;
+import java.util.function.Consumer;
+import java.util.stream.Stream;
 
 @Service
 public class ToDoEntryService {
 
+    static final int MAX_PAGE_SIZE = 200;
+    static final int MAX_BATCH_SIZE = 1000;
+    // Felder, die GET /todos?fields= einzeln abfragen kann
+    static final Set<String> PROJECTABLE_FIELDS = Set.of("id", "name", "description", "dueTime", "done", "version");
+
     @Autowired
     ToDoEntryRepository repo;
 
-    public ToDoEntry save(ToDoEntry entry) {
+    @Autowired
+    ToDoEntryCache cache;
+
+    @Autowired
+    ChangeSequence changeSequence;
+
+    @Autowired
+    ToDoTombstoneRepository tombstones;
+
+    @Autowired
+    ApplicationEventPublisher events;
+
+    @Autowired
+    ToDoSearchIndex searchIndex;
+
+    @Autowired
+    ToDoDueIndex dueIndex;
+
+    @Autowired
+    ToDoWriteBehind writeBehind;
+
+    @PersistenceContext
+    EntityManager entityManager;
+
+    @Value("${app.auth.user}")
+    String defaultOwner;
+
+    Logger logger = LoggerFactory.getLogger(ToDoEntryService.class);
+
+    /**
+     * Einträge aus der Zeit vor der Benutzerzuordnung gehören dem konfigurierten Standardbenutzer.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    @Transactional
+    public void claimUnownedEntries() {
+        int claimed = repo.assignOwnerWhereMissing(defaultOwner);
+        if (claimed > 0) {
+            logger.info("{} ToDos ohne Besitzer wurden {} zugeordnet", claimed, defaultOwner);
+        }
+    }
+
+    /**
+     * Tabellen aus der Zeit der IDENTITY-IDs bekommen per ddl-auto eine neue Sequence, die bei 1 beginnt.
+     * Liegt sie noch unter der größten vorhandenen ID, wird sie einmalig dahinter gesetzt.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(0)
+    @Transactional
+    public void alignIdSequence() {
+        Long maxId = repo.findMaxId();
+        if (maxId == null) {
+            return;
+        }
+        Dialect dialect = entityManager.getEntityManagerFactory().unwrap(SessionFactoryImplementor.class)
+                .getJdbcServices().getDialect();
+        long next = ((Number) entityManager.createNativeQuery(
+                dialect.getSequenceSupport().getSequenceNextValString(ToDoEntry.ID_SEQUENCE))
+                .getSingleResult()).longValue();
+        // der Pooled-Optimizer vergibt aus einem Sequence-Wert n die IDs n - allocationSize + 1 bis n
+        if (next - ToDoEntry.ID_ALLOCATION_SIZE >= maxId) {
+            return;
+        }
+        long restart = maxId + ToDoEntry.ID_ALLOCATION_SIZE;
+        entityManager.createNativeQuery("alter sequence " + ToDoEntry.ID_SEQUENCE + " restart with " + restart)
+                .executeUpdate();
+        logger.info("ID-Sequence {} hinter die größte vorhandene ID {} gesetzt", ToDoEntry.ID_SEQUENCE, maxId);
+    }
+
+    @Transactional
+    public ToDoEntry save(String owner, ToDoEntry entry) {
         entry.setId(null);
-        return repo.save(entry);
+        entry.setVersion(null);
+        entry.setOwner(owner);
+        entry.setChangeSeq(changeSequence.next(owner));
+        ToDoEntry saved = repo.save(entry);
+        cache.put(saved);
+        events.publishEvent(ToDoChangeEvent.created(saved));
+        return saved;
+    }
+
+    /**
+     * Speichert alle Einträge in einer Transaktion. Dank Sequence-IDs und hibernate.jdbc.batch_size
+     * gehen die Inserts gebündelt an die DB statt einzeln.
+     */
+    @Transactional
+    public List<ToDoEntry> saveAll(String owner, List<ToDoEntry> entries) {
+        checkBatchSize(entries);
+        // der ganze Batch teilt sich eine Änderungsnummer
+        long changeSeq = changeSequence.next(owner);
+        entries.forEach(e -> {
+            e.setId(null);
+            e.setVersion(null);
+            e.setOwner(owner);
+            e.setChangeSeq(changeSeq);
+        });
+        List<ToDoEntry> saved = new ArrayList<>(entries.size());
+        repo.saveAll(entries).forEach(saved::add);
+        for (ToDoEntry e : saved) {
+            cache.put(e);
+            events.publishEvent(ToDoChangeEvent.created(e));
+        }
+        return saved;
+    }
+
+    /**
+     * Aktualisiert alle Einträge in einer Transaktion: ein SELECT für alle IDs,
+     * die UPDATEs schreibt Hibernate beim Commit als JDBC-Batch.
+     * Enthält ein Eintrag eine Version, muss sie zur gespeicherten passen.
+     */
+    @Transactional
+    public List<ToDoEntry> updateAll(String owner, List<ToDoEntry> updatedEntries) {
+        checkBatchSize(updatedEntries);
+        Map<Long, ToDoEntry> updatesById = new LinkedHashMap<>();
+        for (ToDoEntry updated : updatedEntries) {
+            if (updated.getId() == null) {
+                throw new IllegalArgumentException("ID fehlt bei Batch-Update");
+            }
+            updatesById.put(updated.getId(), updated);
+        }
+
+        long changeSeq = changeSequence.next(owner);
+        List<ToDoEntry> result = new ArrayList<>(updatesById.size());
+        for (ToDoEntry existing : repo.findAllById(updatesById.keySet())) {
+            if (!owner.equals(existing.getOwner())) {
+                // fremde Einträge bleiben in updatesById und gelten als nicht gefunden
+                continue;
+            }
+            ToDoEntry updated = updatesById.remove(existing.getId());
+            if (updated.getVersion() != null && !updated.getVersion().equals(existing.getVersion())) {
+                throw new PreconditionFailedException("ToDo mit ID " + existing.getId() + " wurde zwischenzeitlich geändert");
+            }
+            existing.setName(updated.getName());
+            existing.setDescription(updated.getDescription());
+            existing.setDueTime(updated.getDueTime());
+            existing.setDone(updated.isDone());
+            if (updated.hasTags()) {
+                existing.getTags().clear();
+                existing.getTags().addAll(updated.getTags());
+            }
+            existing.setChangeSeq(changeSeq);
+            result.add(existing);
+        }
+        if (!updatesById.isEmpty()) {
+            throw new ToDoNotFoundException(updatesById.keySet().iterator().next());
+        }
+        for (ToDoEntry e : result) {
+            writeBehind.discard(owner, e.getId());
+            cache.put(e);
+            events.publishEvent(ToDoChangeEvent.updated(e));
+        }
+        return result;
+    }
+
+    // Ein einziges DELETE ... WHERE id IN (...) plus Tombstones, nicht vorhandene IDs werden ignoriert
+    @Transactional
+    public int deleteAll(String owner, List<Long> ids) {
+        if (ids.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Maximal " + MAX_BATCH_SIZE + " Einträge pro Batch");
+        }
+        List<Long> existing = ids.isEmpty() ? List.of() : repo.findExistingIds(owner, ids);
+        if (existing.isEmpty()) {
+            return 0;
+        }
+        int deleted = repo.deleteAllByIdIn(existing);
+        long changeSeq = changeSequence.next(owner);
+        List<ToDoTombstone> deletedEntries = new ArrayList<>(existing.size());
+        for (Long id : existing) {
+            deletedEntries.add(new ToDoTombstone(owner, id, changeSeq));
+            writeBehind.discard(owner, id);
+            cache.evict(owner, id);
+            events.publishEvent(ToDoChangeEvent.deleted(owner, id, changeSeq));
+        }
+        tombstones.saveAll(deletedEntries);
+        return deleted;
+    }
+
+    public ToDoEntry get(String owner, Long id) {
+        ToDoEntry entry = cache.get(id, key -> repo.findById(key).orElse(null));
+        // fremde Einträge verhalten sich wie nicht vorhandene
+        if (entry == null || !owner.equals(entry.getOwner())) {
+            throw new ToDoNotFoundException(id);
+        }
+        return withPendingDone(entry);
+    }
+
+    public List<ToDoEntry> getAll(String owner) {
+        List<ToDoEntry> all = cache.getAll(owner, () -> repo.findByOwnerOrderById(owner));
+        return writeBehind.hasPending(owner) ? all.stream().map(this::withPendingDone).toList() : all;
+    }
+
+    /**
+     * Einträge mit allen angegebenen Tags. Die Tags der Treffer kommen per @BatchSize in einem zweiten SELECT.
+     */
+    public List<ToDoEntry> getByTags(String owner, List<String> tags) {
+        SortedSet<String> wanted = ToDoEntry.normalizeTags(tags);
+        wanted.remove("");
+        if (wanted.isEmpty() || wanted.size() > ToDoEntry.MAX_TAGS) {
+            throw new IllegalArgumentException("Zwischen 1 und " + ToDoEntry.MAX_TAGS + " Tags angeben");
+        }
+        List<ToDoEntry> tagged = repo.findAll(filter(owner, null, null, null, false, wanted), Sort.by("id"));
+        return writeBehind.hasPending(owner) ? tagged.stream().map(this::withPendingDone).toList() : tagged;
     }
 
-    public ToDoEntry get(Long id) {
-        return repo.findById(id).orElseThrow(RuntimeException::new);
+    // offene und erledigte Einträge je Tag, eine gruppierte Abfrage statt Einträge zu laden
+    public List<ToDoTagCount> getTagCounts(String owner) {
+        return repo.countByTag(owner);
     }
 
-    public List<ToDoEntry> getAll() {
-        Iterable<ToDoEntry> iterator = repo.findAll();
-        List<ToDoEntry> todos = new ArrayList<>();
-        for (ToDoEntry e : iterator) {
-            todos.add(e);
+    // Listenansicht ohne Beschreibung, direkt aus der DB und ohne Entity-Cache
+    public List<ToDoSummary> getSummaries(String owner) {
+        List<ToDoSummary> summaries = repo.findSummariesByOwner(owner);
+        if (!writeBehind.hasPending(owner)) {
+            return summaries;
         }
-        return todos;
+        return summaries.stream().map(s -> {
+            Boolean done = writeBehind.pendingDone(s.id());
+            return done == null ? s : new ToDoSummary(s.id(), s.name(), s.dueTime(), done, s.version());
+        }).toList();
     }
-    public ToDoEntry update(Long id, ToDoEntry updatedEntry) {
-        ToDoEntry existing = repo.findById(id)
-                .orElseThrow(() -> new RuntimeException("ToDo mit ID " + id + " nicht gefunden"));
 
-        // Felder aktualisieren
-        existing.setName(updatedEntry.getName());
-        existing.setDescription(updatedEntry.getDescription());
-        existing.setDueTime(updatedEntry.getDueTime());
-        existing.setDone(updatedEntry.isDone());
+    /**
+     * Liefert nur die angefragten Spalten, je Eintrag als Map in der angefragten Reihenfolge.
+     * Die Abfrage selektiert genau diese Spalten (plus id), Entities werden dabei nicht geladen.
+     */
+    public List<Map<String, Object>> getFields(String owner, List<String> fields) {
+        List<String> selected = fields.stream().map(String::trim).filter(f -> !f.isEmpty()).distinct().toList();
+        if (selected.isEmpty()) {
+            throw new IllegalArgumentException("Mindestens ein Feld angeben");
+        }
+        for (String field : selected) {
+            if (!PROJECTABLE_FIELDS.contains(field)) {
+                throw new IllegalArgumentException("Unbekanntes Feld: " + field);
+            }
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Tuple> query = cb.createTupleQuery();
+        Root<ToDoEntry> root = query.from(ToDoEntry.class);
+        // id immer mitlesen, damit ausstehende done-Umschaltungen zugeordnet werden können
+        List<Selection<?>> selections = new ArrayList<>();
+        selections.add(root.get("id").alias("_id"));
+        for (String field : selected) {
+            selections.add(root.get(field).alias(field));
+        }
+        query.multiselect(selections)
+                .where(cb.equal(root.get("owner"), owner))
+                .orderBy(cb.asc(root.get("id")));
+
+        boolean pending = writeBehind.hasPending(owner);
+        List<Map<String, Object>> rows = new ArrayList<>();
+        for (Tuple tuple : entityManager.createQuery(query).getResultList()) {
+            Map<String, Object> row = new LinkedHashMap<>();
+            for (String field : selected) {
+                row.put(field, tuple.get(field));
+            }
+            if (pending && row.containsKey("done")) {
+                Boolean done = writeBehind.pendingDone(tuple.get("_id", Long.class));
+                if (done != null) {
+                    row.put("done", done);
+                }
+            }
+            rows.add(row);
+        }
+        return rows;
+    }
+
+    /**
+     * Volltextsuche über Name und Beschreibung, sortiert nach Relevanz.
+     * Solange der Suchindex nach dem Start noch aufgebaut wird, sucht ein LIKE in der DB (ohne Ranking).
+     */
+    public List<ToDoEntry> search(String owner, String query, int limit) {
+        int max = Math.clamp(limit, 1, MAX_PAGE_SIZE);
+        List<Long> ids = searchIndex.search(owner, query, max);
+        if (ids == null) {
+            String pattern = "%" + query.trim().toLowerCase(Locale.ROOT)
+                    .replace("\\", "\\\\").replace("%", "\\%").replace("_", "\\_") + "%";
+            return repo.searchByText(owner, pattern, Limit.of(max));
+        }
+        return loadInOrder(owner, ids);
+    }
+
+    // überfällige offene ToDos aus dem Fälligkeitsindex, die am längsten überfälligen zuerst
+    public List<ToDoEntry> getOverdue(String owner, int limit) {
+        return loadInOrder(owner, dueIndex.overdue(owner, Math.clamp(limit, 1, MAX_PAGE_SIZE)));
+    }
+
+    // offene ToDos, die innerhalb von within fällig werden, die nächsten zuerst
+    public List<ToDoEntry> getUpcoming(String owner, Duration within, int limit) {
+        return loadInOrder(owner, dueIndex.upcoming(owner, within, Math.clamp(limit, 1, MAX_PAGE_SIZE)));
+    }
+
+    // ein SELECT für alle IDs, Reihenfolge wie in ids; fremde oder inzwischen gelöschte Einträge fallen weg
+    private List<ToDoEntry> loadInOrder(String owner, List<Long> ids) {
+        if (ids.isEmpty()) {
+            return List.of();
+        }
+        Map<Long, ToDoEntry> byId = new HashMap<>();
+        for (ToDoEntry e : repo.findAllById(ids)) {
+            if (owner.equals(e.getOwner())) {
+                byId.put(e.getId(), e);
+            }
+        }
+        List<ToDoEntry> result = new ArrayList<>(byId.size());
+        for (Long id : ids) {
+            ToDoEntry e = byId.get(id);
+            if (e != null) {
+                result.add(e);
+            }
+        }
+        return result;
+    }
+
+    /**
+     * Liefert eine Seite per Keyset-Pagination. Statt OFFSET merkt sich der Cursor
+     * die Sortierschlüssel des letzten Eintrags, die DB springt also direkt über den Index dorthin.
+     * Bei sort=dueTime werden Einträge ohne Fälligkeitsdatum nicht geliefert.
+     */
+    public ToDoPage getPage(String owner, Boolean done, LocalDateTime dueFrom, LocalDateTime dueTo,
+                            String sort, Sort.Direction direction, String cursor, int size) {
+        boolean byDueTime = "dueTime".equals(sort);
+        if (!byDueTime && !"id".equals(sort)) {
+            throw new IllegalArgumentException("Unbekannte Sortierung: " + sort);
+        }
+        int limit = Math.clamp(size, 1, MAX_PAGE_SIZE);
+
+        Sort order = byDueTime
+                ? Sort.by(direction, "dueTime").and(Sort.by(direction, "id"))
+                : Sort.by(direction, "id");
+        Specification<ToDoEntry> spec = filter(owner, done, dueFrom, dueTo, byDueTime, null);
+        ScrollPosition position = cursor == null || cursor.isBlank()
+                ? ScrollPosition.keyset()
+                : ScrollPosition.forward(decodeCursor(cursor, byDueTime));
+
+        Window<ToDoEntry> window = repo.findBy(spec, q -> q.sortBy(order).limit(limit).scroll(position));
+
+        List<ToDoEntry> items = window.getContent();
+        String next = window.hasNext() && !items.isEmpty()
+                ? encodeCursor(items.get(items.size() - 1), byDueTime)
+                : null;
+        return new ToDoPage(items, next);
+    }
+
+    /**
+     * Reicht alle Einträge nacheinander an den Consumer weiter, ohne die Tabelle in den Speicher zu laden.
+     * Jeder Eintrag wird nach der Verarbeitung aus dem Persistence Context entfernt.
+     */
+    @Transactional(readOnly = true)
+    public void streamAll(String owner, Consumer<ToDoEntry> consumer) {
+        try (Stream<ToDoEntry> stream = repo.streamByOwner(owner)) {
+            stream.forEach(entry -> {
+                consumer.accept(entry);
+                entityManager.detach(entry);
+            });
+        }
+    }
+
+    /**
+     * Write-Behind für PUT: greift nur, wenn er eingeschaltet ist und sich gegenüber dem aktuellen Stand
+     * ausschließlich done ändert. Gibt dann den Eintrag mit dem neuen done-Wert zurück, sonst null.
+     */
+    public ToDoEntry updateDeferred(String owner, Long id, ToDoEntry updatedEntry) {
+        if (!writeBehind.isEnabled()) {
+            return null;
+        }
+        ToDoEntry current = get(owner, id);
+        if (!Objects.equals(current.getName(), updatedEntry.getName())
+                || !Objects.equals(current.getDescription(), updatedEntry.getDescription())
+                || !Objects.equals(current.getDueTime(), updatedEntry.getDueTime())
+                || (updatedEntry.hasTags() && !current.getTags().equals(updatedEntry.getTags()))) {
+            return null;
+        }
+        writeBehind.append(owner, id, updatedEntry.isDone());
+        return withDone(current, updatedEntry.isDone());
+    }
+
+    // Write-Behind für PATCH, nur wenn ausschließlich done gesendet wurde
+    public boolean patchDeferred(String owner, Long id, ToDoPatch patch) {
+        if (!writeBehind.isEnabled() || patch.done() == null || patch.name() != null
+                || patch.description() != null || patch.dueTime() != null || patch.tags() != null) {
+            return false;
+        }
+        get(owner, id);
+        writeBehind.append(owner, id, patch.done());
+        return true;
+    }
+
+    /**
+     * Schreibt zusammengefasste done-Umschaltungen aus dem Write-Behind: ein UPDATE je Wert,
+     * eine gemeinsame Änderungsnummer. Inzwischen gelöschte oder synchron überschriebene Einträge werden übersprungen.
+     */
+    @Transactional
+    public int applyDone(String owner, Map<Long, Boolean> doneById) {
+        // erst sperren, dann prüfen: was ein synchroner Schreibzugriff inzwischen verworfen hat, bleibt stehen
+        List<Long> existing = writeBehind.stillInFlight(repo.lockExistingIds(owner, doneById.keySet()));
+        if (existing.isEmpty()) {
+            return 0;
+        }
+        long changeSeq = changeSequence.next(owner);
+        Map<Boolean, List<Long>> byValue = new HashMap<>();
+        for (Long id : existing) {
+            byValue.computeIfAbsent(doneById.get(id), v -> new ArrayList<>()).add(id);
+        }
+        int rows = 0;
+        for (Map.Entry<Boolean, List<Long>> group : byValue.entrySet()) {
+            rows += repo.updateDone(owner, group.getValue(), group.getKey(), changeSeq);
+        }
+        for (Long id : existing) {
+            ToDoPatch patch = new ToDoPatch(null, null, null, doneById.get(id));
+            cache.update(owner, id, entry -> {
+                ToDoEntry patched = patch.applyTo(entry);
+                patched.setChangeSeq(changeSeq);
+                return patched;
+            });
+            events.publishEvent(ToDoChangeEvent.patched(owner, id, patch, changeSeq));
+        }
+        return rows;
+    }
+
+    /**
+     * Überschreibt den Eintrag mit einem einzigen UPDATE. Mit expectedVersion (aus If-Match)
+     * greift das UPDATE nur auf diese Version, sonst gibt es 412 statt eines verlorenen Updates.
+     */
+    @Transactional
+    public ToDoEntry update(String owner, Long id, ToDoEntry updatedEntry, Long expectedVersion) {
+        long changeSeq = changeSequence.next(owner);
+        int rows = expectedVersion == null
+                ? repo.updateFields(owner, id, updatedEntry.getName(), updatedEntry.getDescription(),
+                        updatedEntry.getDueTime(), updatedEntry.isDone(), changeSeq)
+                : repo.updateFieldsIfVersion(owner, id, expectedVersion, updatedEntry.getName(),
+                        updatedEntry.getDescription(), updatedEntry.getDueTime(), updatedEntry.isDone(), changeSeq);
+        if (rows == 0) {
+            throw notFoundOrConflict(owner, id, expectedVersion);
+        }
+        // PUT setzt done selbst, eine noch ausstehende Umschaltung ist damit überholt
+        writeBehind.discard(owner, id);
+        // ohne Tags im Request bleiben die gespeicherten erhalten
+        if (updatedEntry.hasTags()) {
+            replaceTags(id, updatedEntry.getTags());
+        } else {
+            updatedEntry.setTags(repo.findTagsById(id));
+        }
+
+        updatedEntry.setId(id);
+        updatedEntry.setOwner(owner);
+        updatedEntry.setChangeSeq(changeSeq);
+        // ohne If-Match kennen wir die alte Version nicht, der PK-Lookup ist aber billig
+        updatedEntry.setVersion(expectedVersion != null ? expectedVersion + 1 : repo.findVersionById(id));
+        cache.put(updatedEntry);
+        events.publishEvent(ToDoChangeEvent.updated(updatedEntry));
+        return updatedEntry;
+    }
+
+    /**
+     * Ändert nur die im Patch gesetzten Spalten mit einem einzigen UPDATE.
+     * Gibt die neue Version zurück, falls sie ohne weiteres SELECT bekannt ist (sonst null).
+     */
+    @Transactional
+    public Long patch(String owner, Long id, ToDoPatch patch, Long expectedVersion) {
+        // eine ausstehende done-Umschaltung wird mitgeschrieben, damit sie der Flush nicht später überschreibt;
+        // verworfen wird sie erst, wenn das UPDATE Besitzer und Version bestätigt hat
+        Boolean pendingDone = writeBehind.pendingDone(id);
+        if (pendingDone != null && patch.done() == null) {
+            patch = new ToDoPatch(patch.name(), patch.description(), patch.dueTime(), pendingDone, patch.tags());
+        }
+        if (patch.isEmpty()) {
+            if (!repo.existsByIdAndOwner(id, owner)) {
+                throw new ToDoNotFoundException(id);
+            }
+            return expectedVersion;
+        }
+
+        CriteriaBuilder cb = entityManager.getCriteriaBuilder();
+        CriteriaUpdate<ToDoEntry> update = cb.createCriteriaUpdate(ToDoEntry.class);
+        Root<ToDoEntry> root = update.from(ToDoEntry.class);
+        if (patch.name() != null) {
+            update.set(root.<String>get("name"), patch.name());
+        }
+        if (patch.description() != null) {
+            update.set(root.<String>get("description"), patch.description());
+        }
+        if (patch.dueTime() != null) {
+            update.set(root.<LocalDateTime>get("dueTime"), patch.dueTime());
+        }
+        if (patch.done() != null) {
+            update.set(root.<Boolean>get("done"), patch.done());
+        }
+        long changeSeq = changeSequence.next(owner);
+        update.set(root.<Long>get("version"), cb.sum(root.<Long>get("version"), 1L));
+        update.set(root.<Long>get("changeSeq"), changeSeq);
+        update.set(root.<LocalDateTime>get("modifiedAt"), cb.localDateTime());
+        Predicate match = cb.and(cb.equal(root.get("id"), id), cb.equal(root.get("owner"), owner));
+        update.where(expectedVersion == null
+                ? match
+                : cb.and(match, cb.equal(root.get("version"), expectedVersion)));
+
+        if (entityManager.createQuery(update).executeUpdate() == 0) {
+            throw notFoundOrConflict(owner, id, expectedVersion);
+        }
+        writeBehind.discard(owner, id);
+        if (patch.tags() != null) {
+            replaceTags(id, patch.tags());
+        }
+        ToDoPatch applied = patch;
+        cache.update(owner, id, entry -> {
+            ToDoEntry patched = applied.applyTo(entry);
+            patched.setChangeSeq(changeSeq);
+            return patched;
+        });
+        events.publishEvent(ToDoChangeEvent.patched(owner, id, patch, changeSeq));
+        return expectedVersion == null ? null : expectedVersion + 1;
+    }
+
+    @Transactional
+    public void delete(String owner, Long id, Long expectedVersion) {
+        int rows = expectedVersion == null
+                ? repo.deleteEntryById(owner, id)
+                : repo.deleteEntryByIdAndVersion(owner, id, expectedVersion);
+        if (rows == 0) {
+            throw notFoundOrConflict(owner, id, expectedVersion);
+        }
+        writeBehind.discard(owner, id);
+        long changeSeq = changeSequence.next(owner);
+        tombstones.save(new ToDoTombstone(owner, id, changeSeq));
+        cache.evict(owner, id);
+        events.publishEvent(ToDoChangeEvent.deleted(owner, id, changeSeq));
+    }
+
+    /**
+     * Alle Änderungen nach der Änderungsnummer since: geänderte/neue Einträge und gelöschte IDs.
+     * Die Obergrenze wird vor dem Lesen festgelegt, alle Nummern darunter sind bereits committet.
+     */
+    @Transactional(readOnly = true)
+    public ToDoChanges getChanges(String owner, long since) {
+        long highWaterMark = changeSequence.current(owner);
+        if (highWaterMark <= since) {
+            return new ToDoChanges(List.of(), List.of(), Math.max(since, highWaterMark));
+        }
+        return new ToDoChanges(
+                repo.findChanges(owner, since, highWaterMark),
+                tombstones.findDeletedIds(owner, since, highWaterMark),
+                highWaterMark);
+    }
+
+    // Lesezugriffe sehen angenommene, noch nicht geschriebene done-Umschaltungen schon
+    private ToDoEntry withPendingDone(ToDoEntry entry) {
+        Boolean done = writeBehind.pendingDone(entry.getId());
+        return done == null || done == entry.isDone() ? entry : withDone(entry, done);
+    }
+
+    private static ToDoEntry withDone(ToDoEntry entry, boolean done) {
+        ToDoEntry copy = entry.copy();
+        copy.setDone(done);
+        copy.setDonePending(true);
+        return copy;
+    }
+
+    private void replaceTags(Long id, Collection<String> tags) {
+        repo.deleteTags(id);
+        for (String tag : tags) {
+            repo.insertTag(id, tag);
+        }
+    }
+
+    // nur auf dem Fehlerpfad: unterscheidet "gibt es nicht" (404) von "falsche Version" (412)
+    private ToDoException notFoundOrConflict(String owner, Long id, Long expectedVersion) {
+        if (expectedVersion != null && repo.existsByIdAndOwner(id, owner)) {
+            return new PreconditionFailedException("ToDo mit ID " + id + " wurde zwischenzeitlich geändert");
+        }
+        return new ToDoNotFoundException(id);
+    }
+
+    private static void checkBatchSize(List<ToDoEntry> entries) {
+        if (entries.size() > MAX_BATCH_SIZE) {
+            throw new IllegalArgumentException("Maximal " + MAX_BATCH_SIZE + " Einträge pro Batch");
+        }
+    }
+
+    private static Specification<ToDoEntry> filter(String owner, Boolean done, LocalDateTime dueFrom,
+                                                   LocalDateTime dueTo, boolean requireDueTime, Set<String> tags) {
+        return (root, query, cb) -> {
+            List<Predicate> predicates = new ArrayList<>();
+            predicates.add(cb.equal(root.get("owner"), owner));
+            if (done != null) {
+                predicates.add(cb.equal(root.get("done"), done));
+            }
+            if (dueFrom != null) {
+                predicates.add(cb.greaterThanOrEqualTo(root.get("dueTime"), dueFrom));
+            }
+            if (dueTo != null) {
+                predicates.add(cb.lessThan(root.get("dueTime"), dueTo));
+            }
+            if (requireDueTime) {
+                predicates.add(cb.isNotNull(root.get("dueTime")));
+            }
+            if (tags != null) {
+                // IDs, die alle gesuchten Tags haben: nach Tag filtern, je ID zählen
+                Subquery<Long> tagged = query.subquery(Long.class);
+                Root<ToDoEntry> entry = tagged.from(ToDoEntry.class);
+                Join<ToDoEntry, String> tag = entry.join("tags");
+                tagged.select(entry.get("id"))
+                        .where(cb.equal(entry.get("owner"), owner), tag.in(tags))
+                        .groupBy(entry.get("id"))
+                        .having(cb.equal(cb.count(tag), (long) tags.size()));
+                predicates.add(root.get("id").in(tagged));
+            }
+            return cb.and(predicates.toArray(new Predicate[0]));
+        };
+    }
 
-        return repo.save(existing);
+    private static String encodeCursor(ToDoEntry last, boolean byDueTime) {
+        String raw = byDueTime ? last.getDueTime() + "|" + last.getId() : String.valueOf(last.getId());
+        return Base64.getUrlEncoder().withoutPadding().encodeToString(raw.getBytes(StandardCharsets.UTF_8));
     }
 
-    public void delete(Long id) {
-        if (!repo.existsById(id)) {
-            throw new RuntimeException("ToDo mit ID " + id + " nicht gefunden");
+    private static Map<String, Object> decodeCursor(String cursor, boolean byDueTime) {
+        Map<String, Object> keys = new LinkedHashMap<>();
+        try {
+            String raw = new String(Base64.getUrlDecoder().decode(cursor), StandardCharsets.UTF_8);
+            if (byDueTime) {
+                int sep = raw.indexOf('|');
+                keys.put("dueTime", LocalDateTime.parse(raw.substring(0, sep)));
+                keys.put("id", Long.parseLong(raw.substring(sep + 1)));
+            } else {
+                keys.put("id", Long.parseLong(raw));
+            }
+        } catch (RuntimeException e) {
+            throw new IllegalArgumentException("Ungültiger Cursor: " + cursor);
         }
-        repo.deleteById(id);
+        return keys;
     }
 }
@@ -0,0 +1,216 @@
+package webtech.toDoListe;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.event.EventListener;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayDeque;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Verteilt ToDo-Änderungen per Server-Sent Events an die offenen Verbindungen ihres Besitzers.
+ * Jeder Abonnent hat einen eigenen, begrenzten Puffer und einen virtuellen Thread, der ihn leert.
+ * Ein wartender Abonnent kostet damit nur einen geparkten virtuellen Thread; wer nicht hinterherkommt,
+ * wird getrennt und setzt nach dem Reconnect über Last-Event-ID wieder auf.
+ */
+@Component
+public class ToDoEventBroadcaster implements MeterBinder {
+
+    // Platzhalter im Puffer: statt eines Events einen SSE-Kommentar als Keep-Alive senden
+    private static final ToDoChangeEvent HEARTBEAT = new ToDoChangeEvent(null, null, -1, null, null, null);
+
+    Logger logger = LoggerFactory.getLogger(ToDoEventBroadcaster.class);
+
+    private final Set<Subscriber> subscribers = ConcurrentHashMap.newKeySet();
+    private final ArrayDeque<ToDoChangeEvent> replay = new ArrayDeque<>();
+    // je Besitzer die höchste Änderungsnummer, die nicht (mehr) im Replay-Puffer liegt; nur unter der Replay-Sperre
+    private final Map<String, Long> notReplayableUpTo = new HashMap<>();
+    private final AtomicLong dropped = new AtomicLong();
+
+    private final int bufferSize;
+    private final int replaySize;
+    private final int maxSubscribers;
+    private final long timeoutMillis;
+
+    public ToDoEventBroadcaster(@Value("${app.events.buffer-size:256}") int bufferSize,
+                                @Value("${app.events.replay-size:1000}") int replaySize,
+                                @Value("${app.events.max-subscribers:10000}") int maxSubscribers,
+                                @Value("${app.events.timeout:PT30M}") Duration timeout) {
+        this.bufferSize = bufferSize;
+        this.replaySize = replaySize;
+        this.maxSubscribers = maxSubscribers;
+        this.timeoutMillis = timeout.toMillis();
+    }
+
+    /**
+     * Neuer Abonnent. Mit lastEventId werden die verpassten Events aus dem Replay-Puffer nachgeschickt;
+     * reicht der Puffer nicht so weit zurück, kommt ein "resync"-Event und der Client holt den Rest über /todos/changes.
+     */
+    public SseEmitter subscribe(String owner, Long lastEventId) {
+        if (subscribers.size() >= maxSubscribers) {
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Zu viele offene Event-Verbindungen");
+        }
+        SseEmitter emitter = new SseEmitter(timeoutMillis);
+        Subscriber subscriber = new Subscriber(owner, emitter, new ArrayBlockingQueue<>(bufferSize));
+
+        // unter der Replay-Sperre anmelden, damit zwischen Replay und Live-Events nichts verloren geht
+        synchronized (replay) {
+            if (lastEventId != null) {
+                // unbekannter Besitzer: seit dem Start keine Events, was davor war, weiß nur /todos/changes
+                Long missingUpTo = notReplayableUpTo.get(owner);
+                if (missingUpTo == null || missingUpTo > lastEventId) {
+                    subscriber.resync = true;
+                }
+                for (ToDoChangeEvent event : replay) {
+                    // >= statt >, weil sich Events eines Batches eine Nummer teilen
+                    if (!owner.equals(event.owner()) || event.changeSeq() < lastEventId) {
+                        continue;
+                    }
+                    if (!subscriber.queue.offer(event)) {
+                        subscriber.resync = true;
+                        break;
+                    }
+                }
+            }
+            subscribers.add(subscriber);
+        }
+
+        emitter.onCompletion(subscriber::close);
+        // ohne complete() löst Spring nach dem Timeout eine AsyncRequestTimeoutException aus,
+        // die auf der bereits als text/event-stream gesendeten Antwort nur noch als 503 gezählt würde
+        emitter.onTimeout(() -> {
+            subscriber.close();
+            emitter.complete();
+        });
+        emitter.onError(e -> subscriber.close());
+        subscriber.thread = Thread.ofVirtual().name("sse-subscriber").start(() -> drain(subscriber));
+        return emitter;
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(ToDoChangeEvent event) {
+        synchronized (replay) {
+            // alles vor dem ersten Event seit dem Start ist nicht im Puffer
+            notReplayableUpTo.putIfAbsent(event.owner(), event.changeSeq() - 1);
+            replay.addLast(event);
+            if (replay.size() > replaySize) {
+                ToDoChangeEvent evicted = replay.removeFirst();
+                notReplayableUpTo.merge(evicted.owner(), evicted.changeSeq(), Math::max);
+            }
+        }
+        for (Subscriber subscriber : subscribers) {
+            if (!subscriber.owner.equals(event.owner())) {
+                continue;
+            }
+            if (!subscriber.queue.offer(event)) {
+                // Puffer voll: lieber trennen als blockieren, der Client setzt per Last-Event-ID neu auf
+                dropped.incrementAndGet();
+                subscriber.emitter.complete();
+                subscriber.close();
+            }
+        }
+    }
+
+    // Erinnerung ohne Event-ID: geht nicht in den Replay-Puffer und wird nach einem Reconnect nicht nachgeholt
+    @EventListener
+    public void onDue(ToDoDueEvent event) {
+        for (Subscriber subscriber : subscribers) {
+            if (subscriber.owner.equals(event.owner())) {
+                subscriber.queue.offer(event);
+            }
+        }
+    }
+
+    // hält Verbindungen durch Proxies offen und räumt tote Verbindungen beim nächsten Schreibversuch ab
+    @Scheduled(fixedRateString = "${app.events.heartbeat:PT30S}")
+    public void heartbeat() {
+        for (Subscriber subscriber : subscribers) {
+            subscriber.queue.offer(HEARTBEAT);
+        }
+    }
+
+    public int subscriberCount() {
+        return subscribers.size();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("todos.events.subscribers", subscribers, Set::size)
+                .description("Offene SSE-Verbindungen")
+                .register(registry);
+        FunctionCounter.builder("todos.events.dropped", dropped, AtomicLong::get)
+                .description("Wegen vollem Puffer getrennte Abonnenten")
+                .register(registry);
+    }
+
+    private void drain(Subscriber subscriber) {
+        try {
+            if (subscriber.resync) {
+                subscriber.emitter.send(SseEmitter.event().name("resync").data("resync"));
+            }
+            while (!subscriber.closed) {
+                Object item = subscriber.queue.take();
+                if (item == HEARTBEAT) {
+                    subscriber.emitter.send(SseEmitter.event().comment("keep-alive"));
+                } else if (item instanceof ToDoDueEvent due) {
+                    subscriber.emitter.send(SseEmitter.event().name("due").data(due));
+                } else if (item instanceof ToDoChangeEvent event) {
+                    subscriber.emitter.send(SseEmitter.event()
+                            .id(String.valueOf(event.changeSeq()))
+                            .name(event.type().name().toLowerCase())
+                            .data(event));
+                }
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } catch (IOException | IllegalStateException e) {
+            logger.debug("SSE-Verbindung beendet: {}", e.getMessage());
+        } finally {
+            subscriber.close();
+        }
+    }
+
+    private final class Subscriber {
+        final String owner;
+        final SseEmitter emitter;
+        // ToDoChangeEvents, ToDoDueEvents und HEARTBEAT
+        final BlockingQueue<Object> queue;
+        volatile Thread thread;
+        volatile boolean closed;
+        boolean resync;
+
+        Subscriber(String owner, SseEmitter emitter, BlockingQueue<Object> queue) {
+            this.owner = owner;
+            this.emitter = emitter;
+            this.queue = queue;
+        }
+
+        void close() {
+            closed = true;
+            subscribers.remove(this);
+            Thread t = thread;
+            if (t != null && t != Thread.currentThread()) {
+                t.interrupt();
+            }
+        }
+    }
+}
@@ -0,0 +1,30 @@
+package webtech.toDoListe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.CrossOrigin;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.RequestAttribute;
+import org.springframework.web.bind.annotation.RequestHeader;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+
+@RestController
+public class ToDoEventController {
+
+    @Autowired
+    ToDoEventBroadcaster broadcaster;
+
+    Logger logger = LoggerFactory.getLogger(ToDoEventController.class);
+
+    // EventSource schickt Last-Event-ID beim automatischen Reconnect selbst mit
+    @CrossOrigin
+    @GetMapping(value = "/todos/events", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter events(@RequestAttribute(AuthTokenFilter.USER_ATTRIBUTE) String owner,
+                             @RequestHeader(value = "Last-Event-ID", required = false) Long lastEventId) {
+        logger.debug("GET /todos/events lastEventId={}", lastEventId);
+        return broadcaster.subscribe(owner, lastEventId);
+    }
+}
@@ -0,0 +1,17 @@
+package webtech.toDoListe;
+
+import org.springframework.http.HttpStatus;
+
+/**
+ * Basis der erwarteten Fehler (nicht gefunden, Versionskonflikt, ungültige Eingaben).
+ * Ohne Stacktrace: die Fehler entstehen durch Client-Eingaben, nicht durch Programmfehler,
+ * und sollen bei vielen Anfragen auf fehlende IDs nicht mehr kosten als ein Treffer.
+ */
+public abstract class ToDoException extends RuntimeException {
+
+    protected ToDoException(String message) {
+        super(message, null, false, false);
+    }
+
+    public abstract HttpStatus getStatus();
+}
@@ -0,0 +1,109 @@
+package webtech.toDoListe;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Supplier;
+
+/**
+ * Ergebnisse von POST /todos je (Benutzer, Idempotency-Key), begrenzt auf max-keys Schlüssel und ttl lang.
+ * Eine Wiederholung mit demselben Schlüssel bekommt den ursprünglich angelegten Eintrag, ohne die DB zu berühren.
+ * Der erste Request legt eine CompletableFuture per putIfAbsent an; gleichzeitig ankommende Duplikate warten
+ * auf genau diese, statt selbst einzufügen. Scheitert der erste Request, wird der Schlüssel wieder freigegeben.
+ * Der Store lebt im Speicher der Instanz; hinter einem Load Balancer ohne Sticky Sessions schützt er nur
+ * Wiederholungen, die auf derselben Instanz landen.
+ */
+@Component
+public class ToDoIdempotencyStore implements MeterBinder {
+
+    public static final String HEADER = "Idempotency-Key";
+    public static final String REPLAYED_HEADER = "Idempotent-Replayed";
+    static final int MAX_KEY_LENGTH = 255;
+
+    private record Key(String owner, String key) {
+    }
+
+    // fingerprint: die Felder des Request-Bodys, die den angelegten Eintrag bestimmen
+    private record Pending(List<Object> fingerprint, CompletableFuture<ToDoEntry> result) {
+    }
+
+    public record Result(ToDoEntry entry, boolean replayed) {
+    }
+
+    private final Cache<Key, Pending> results;
+    private final AtomicLong replayed = new AtomicLong();
+
+    public ToDoIdempotencyStore(@Value("${app.idempotency.max-keys:100000}") long maxKeys,
+                                @Value("${app.idempotency.ttl:PT24H}") Duration ttl) {
+        this.results = Caffeine.newBuilder()
+                .maximumSize(maxKeys)
+                .expireAfterWrite(ttl)
+                .build();
+    }
+
+    /**
+     * Führt create nur beim ersten Request mit diesem Schlüssel aus, alle weiteren bekommen dessen Ergebnis.
+     * Derselbe Schlüssel mit anderem Body ist ein Client-Fehler (422).
+     */
+    public Result create(String owner, String key, ToDoEntry request, Supplier<ToDoEntry> create) {
+        if (key.isBlank() || key.length() > MAX_KEY_LENGTH) {
+            throw new IllegalArgumentException(HEADER + " muss 1 bis " + MAX_KEY_LENGTH + " Zeichen lang sein");
+        }
+        Key id = new Key(owner, key);
+        Pending mine = new Pending(fingerprint(request), new CompletableFuture<>());
+        Pending existing = results.asMap().putIfAbsent(id, mine);
+        if (existing == null) {
+            try {
+                ToDoEntry saved = create.get();
+                // Kopie, damit spätere Änderungen am Objekt (z.B. im Cache) die Wiederholung nicht verändern
+                mine.result().complete(saved.copy());
+                return new Result(saved, false);
+            } catch (RuntimeException e) {
+                results.asMap().remove(id, mine);
+                mine.result().completeExceptionally(e);
+                throw e;
+            }
+        }
+        if (!existing.fingerprint().equals(mine.fingerprint())) {
+            throw new IdempotencyKeyReusedException(key);
+        }
+        try {
+            ToDoEntry original = existing.result().join();
+            replayed.incrementAndGet();
+            return new Result(original, true);
+        } catch (CompletionException e) {
+            // der erste Request ist gescheitert, das Duplikat bekommt denselben Fehler und darf es erneut versuchen
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static List<Object> fingerprint(ToDoEntry request) {
+        return Arrays.asList(request.getName(), request.getDescription(), request.getDueTime(), request.isDone(),
+                List.copyOf(request.getTags()));
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("todos.idempotency.keys", results, Cache::estimatedSize)
+                .description("Gemerkte Idempotency-Keys")
+                .register(registry);
+        FunctionCounter.builder("todos.idempotency.replayed", replayed, AtomicLong::get)
+                .description("Aus dem Store beantwortete Wiederholungen von POST /todos")
+                .register(registry);
+    }
+}
@@ -0,0 +1,244 @@
+package webtech.toDoListe;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.InputStreamReader;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.io.UncheckedIOException;
+import java.io.Writer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+
+/**
+ * Import und Export ganzer ToDo-Listen als CSV oder NDJSON, jeweils zeilenweise im Stream.
+ * Der Import prüft jede Zeile mit den Constraints von ToDoEntry (Gruppe Stored, also ohne @Future, damit
+ * überfällige und erledigte Einträge aus einem Export wieder eingelesen werden) und speichert gültige Zeilen in Blöcken
+ * zu CHUNK_SIZE Einträgen (eine Transaktion je Block, Inserts als JDBC-Batch). Ungültige Zeilen werden
+ * übersprungen und wie bei den Batch-Endpunkten als "[zeile].feld" -> Meldung gemeldet.
+ */
+@Component
+public class ToDoImporter {
+
+    static final int CHUNK_SIZE = ToDoEntryService.MAX_BATCH_SIZE;
+    // mehr Fehler werden nur gezählt, damit die Antwort bei einer kaputten Datei klein bleibt
+    static final int MAX_REPORTED_ERRORS = 1000;
+
+    @Autowired
+    ToDoEntryService service;
+
+    @Autowired
+    ObjectMapper objectMapper;
+
+    @Autowired
+    Validator validator;
+
+    Logger logger = LoggerFactory.getLogger(ToDoImporter.class);
+
+    public enum Format {
+        CSV, NDJSON;
+
+        public static Format of(String format) {
+            try {
+                return valueOf(format.toUpperCase(Locale.ROOT));
+            } catch (IllegalArgumentException e) {
+                throw new IllegalArgumentException("Unbekanntes Format: " + format + " (csv oder ndjson)");
+            }
+        }
+    }
+
+    // Ergebnis eines Imports: gespeicherte und abgelehnte Zeilen, Fehler im Format des GlobalExceptionHandlers
+    public record Result(long imported, long rejected, Map<String, String> errors) {
+    }
+
+    // sammelt gültige Zeilen und speichert sie blockweise
+    private class Batch {
+        final String owner;
+        List<ToDoEntry> chunk = new ArrayList<>(CHUNK_SIZE);
+        final Map<String, String> errors = new LinkedHashMap<>();
+        long imported;
+        long rejected;
+
+        Batch(String owner) {
+            this.owner = owner;
+        }
+
+        void add(long line, ToDoEntry entry) {
+            boolean valid = true;
+            for (ConstraintViolation<ToDoEntry> violation : validator.validate(entry, ToDoEntry.Stored.class)) {
+                error(line, violation.getPropertyPath().toString(), violation.getMessage());
+                valid = false;
+            }
+            if (!valid) {
+                rejected++;
+                return;
+            }
+            chunk.add(entry);
+            if (chunk.size() == CHUNK_SIZE) {
+                flush();
+            }
+        }
+
+        void reject(long line, String field, String message) {
+            error(line, field, message);
+            rejected++;
+        }
+
+        private void error(long line, String field, String message) {
+            if (errors.size() < MAX_REPORTED_ERRORS) {
+                errors.put("[" + line + "]" + (field.isEmpty() ? "" : "." + field), message);
+            }
+        }
+
+        void flush() {
+            if (!chunk.isEmpty()) {
+                imported += service.saveAll(owner, chunk).size();
+                chunk = new ArrayList<>(CHUNK_SIZE);
+            }
+        }
+
+        Result finish() {
+            flush();
+            logger.info("Import für {}: {} gespeichert, {} abgelehnt", owner, imported, rejected);
+            return new Result(imported, rejected, errors);
+        }
+    }
+
+    /**
+     * Liest die Datei zeilenweise. Bereits gespeicherte Blöcke bleiben auch bei einem späteren Abbruch erhalten.
+     * Wird keine einzige Zeile übernommen, gibt es die Fehler als BatchValidationException (400).
+     */
+    public Result importEntries(String owner, Format format, InputStream body) throws IOException {
+        BufferedReader reader = new BufferedReader(new InputStreamReader(body, StandardCharsets.UTF_8), 64 * 1024);
+        Batch batch = new Batch(owner);
+        if (format == Format.CSV) {
+            readCsv(reader, batch);
+        } else {
+            readNdjson(reader, batch);
+        }
+        Result result = batch.finish();
+        if (result.imported() == 0 && result.rejected() > 0) {
+            throw new BatchValidationException(result.errors());
+        }
+        return result;
+    }
+
+    private void readNdjson(BufferedReader reader, Batch batch) throws IOException {
+        ObjectReader entryReader = objectMapper.readerFor(ToDoEntry.class);
+        String line;
+        long number = 0;
+        while ((line = reader.readLine()) != null) {
+            number++;
+            if (line.isBlank()) {
+                continue;
+            }
+            try {
+                batch.add(number, entryReader.readValue(line));
+            } catch (JsonProcessingException e) {
+                batch.reject(number, "", "Ungültiges JSON: " + e.getOriginalMessage());
+            }
+        }
+    }
+
+    private void readCsv(BufferedReader reader, Batch batch) throws IOException {
+        ToDoCsv csv = new ToDoCsv(reader);
+        List<String> header = csv.read();
+        if (header == null) {
+            return;
+        }
+        // Spalten über die Kopfzeile zuordnen, id wird ignoriert (neue IDs wie bei POST)
+        int[] columns = new int[ToDoCsv.COLUMNS.size()];
+        Arrays.fill(columns, -1);
+        for (int i = 0; i < header.size(); i++) {
+            String name = header.get(i).trim();
+            int column = ToDoCsv.COLUMNS.indexOf(name);
+            if (column < 0) {
+                throw new IllegalArgumentException("Unbekannte Spalte: " + name + ", erlaubt sind " + ToDoCsv.COLUMNS);
+            }
+            columns[column] = i;
+        }
+        if (columns[ToDoCsv.COLUMNS.indexOf("name")] < 0) {
+            throw new IllegalArgumentException("Spalte name fehlt");
+        }
+
+        List<String> record;
+        while ((record = csv.read()) != null) {
+            long line = csv.recordLine();
+            if (record.size() != header.size()) {
+                batch.reject(line, "", "Erwartet " + header.size() + " Spalten, gefunden " + record.size());
+                continue;
+            }
+            ToDoEntry entry = new ToDoEntry();
+            entry.setName(value(record, columns, "name"));
+            entry.setDescription(value(record, columns, "description"));
+            String dueTime = value(record, columns, "dueTime");
+            String done = value(record, columns, "done");
+            String tags = value(record, columns, "tags");
+            try {
+                entry.setDueTime(dueTime == null ? null : LocalDateTime.parse(dueTime));
+            } catch (DateTimeParseException e) {
+                batch.reject(line, "dueTime", "Ungültiges Datum: " + dueTime);
+                continue;
+            }
+            if (done != null && !"true".equalsIgnoreCase(done) && !"false".equalsIgnoreCase(done)) {
+                batch.reject(line, "done", "Ungültiger Wert: " + done + " (true oder false)");
+                continue;
+            }
+            entry.setDone(Boolean.parseBoolean(done));
+            // Tags durch Leerzeichen getrennt, sie selbst enthalten keine
+            entry.setTags(tags == null ? null : Arrays.asList(tags.trim().split("\\s+")));
+            batch.add(line, entry);
+        }
+    }
+
+    // leere Zellen und fehlende Spalten sind null
+    private static String value(List<String> record, int[] columns, String column) {
+        int index = columns[ToDoCsv.COLUMNS.indexOf(column)];
+        if (index < 0) {
+            return null;
+        }
+        String value = record.get(index);
+        return value.isEmpty() ? null : value;
+    }
+
+    /**
+     * Schreibt alle Einträge direkt aus dem DB-Cursor, die Spalten wie beim Import.
+     */
+    public void exportCsv(String owner, OutputStream out) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(out, StandardCharsets.UTF_8), 64 * 1024);
+        ToDoCsv.write(writer, ToDoCsv.COLUMNS);
+        service.streamAll(owner, entry -> {
+            try {
+                ToDoCsv.write(writer, Arrays.asList(
+                        String.valueOf(entry.getId()),
+                        entry.getName(),
+                        entry.getDescription(),
+                        entry.getDueTime() == null ? null : entry.getDueTime().toString(),
+                        String.valueOf(entry.isDone()),
+                        String.join(" ", entry.getTags())));
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+        writer.flush();
+    }
+}
@@ -2,8 +2,12 @@ package webtech.toDoListe;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.context.annotation.ImportRuntimeHints;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
 @SpringBootApplication
+@EnableScheduling
+@ImportRuntimeHints(ToDoRuntimeHints.class)
 public class ToDoListeApplication {
 
 	public static void main(String[] args) {
@@ -0,0 +1,21 @@
+package webtech.toDoListe;
+
+import org.springframework.http.HttpStatus;
+
+// ToDo existiert nicht oder gehört einem anderen Benutzer -> 404
+public class ToDoNotFoundException extends ToDoException {
+
+    private final Long id;
+
+    public ToDoNotFoundException(Long id) {
+        super("ToDo mit ID " + id + " nicht gefunden");
+        this.id = id;
+    }
+
+    public Long getId() { return id; }
+
+    @Override
+    public HttpStatus getStatus() {
+        return HttpStatus.NOT_FOUND;
+    }
+}
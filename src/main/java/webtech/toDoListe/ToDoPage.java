@@ -0,0 +1,7 @@
+package webtech.toDoListe;
+
+import java.util.List;
+
+// Eine Seite aus GET /todos/page, nextCursor ist null wenn es keine weitere Seite gibt
+public record ToDoPage(List<ToDoEntry> items, String nextCursor) {
+}
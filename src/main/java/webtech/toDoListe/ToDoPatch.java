@@ -0,0 +1,55 @@
+package webtech.toDoListe;
+
+import jakarta.validation.constraints.Future;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+
+import java.time.LocalDateTime;
+import java.util.SortedSet;
+import java.util.TreeSet;
+
+// Teil-Update für PATCH /todos/{id}: null heißt "unverändert lassen"
+public record ToDoPatch(
+        @Size(min = 3, max = 100, message = "Name muss zwischen 3 und 100 Zeichen lang sein")
+        @Pattern(regexp = "(?s).*\\S.*", message = "Name darf nicht leer sein")
+        String name,
+
+        @Size(max = 500, message = "Beschreibung darf maximal 500 Zeichen lang sein")
+        String description,
+
+        @Future(message = "Fälligkeitsdatum muss in der Zukunft liegen")
+        LocalDateTime dueTime,
+
+        Boolean done,
+
+        // ersetzt alle Tags des Eintrags, leere Liste entfernt sie
+        @Size(max = ToDoEntry.MAX_TAGS, message = "Maximal " + ToDoEntry.MAX_TAGS + " Tags pro ToDo")
+        SortedSet<@Pattern(regexp = ToDoEntry.TAG_PATTERN, message = "Tags bestehen aus 1 bis 30 Buchstaben, Ziffern, - oder _") String> tags) {
+
+    public ToDoPatch {
+        tags = ToDoEntry.normalizeTags(tags);
+    }
+
+    public ToDoPatch(String name, String description, LocalDateTime dueTime, Boolean done) {
+        this(name, description, dueTime, done, null);
+    }
+
+    public boolean isEmpty() {
+        return name == null && description == null && dueTime == null && done == null && tags == null;
+    }
+
+    // neue Kopie mit den geänderten Feldern und nächster Version, der übergebene Eintrag bleibt unverändert
+    public ToDoEntry applyTo(ToDoEntry entry) {
+        ToDoEntry patched = new ToDoEntry(
+                name != null ? name : entry.getName(),
+                description != null ? description : entry.getDescription(),
+                dueTime != null ? dueTime : entry.getDueTime(),
+                done != null ? done : entry.isDone());
+        patched.setId(entry.getId());
+        patched.setVersion(entry.getVersion() == null ? null : entry.getVersion() + 1);
+        patched.setChangeSeq(entry.getChangeSeq());
+        patched.setOwner(entry.getOwner());
+        patched.setTags(tags != null ? tags : new TreeSet<>(entry.getTags()));
+        return patched;
+    }
+}
@@ -0,0 +1,34 @@
+package webtech.toDoListe;
+
+import org.springframework.aot.hint.BindingReflectionHintsRegistrar;
+import org.springframework.aot.hint.MemberCategory;
+import org.springframework.aot.hint.RuntimeHints;
+import org.springframework.aot.hint.RuntimeHintsRegistrar;
+
+/**
+ * Reflection-Hinweise für das Native Image (./gradlew nativeCompile -Pnative).
+ * Rückgabe- und Body-Typen der Controller erkennt Spring AOT selbst; hier stehen die Typen,
+ * die nur über den ObjectMapper (NDJSON, SSE, Write-Behind) oder per JPA-Feldzugriff benutzt werden.
+ */
+public class ToDoRuntimeHints implements RuntimeHintsRegistrar {
+
+    private static final Class<?>[] JSON_TYPES = {
+            ToDoEntry.class, ToDoPatch.class, ToDoSummary.class, ToDoPage.class, ToDoChanges.class,
+            ToDoTagCount.class, ToDoChangeEvent.class, ToDoDueEvent.class, LoginRequest.class, LoginResponse.class
+    };
+
+    private static final Class<?>[] ENTITY_TYPES = {
+            ToDoEntry.class, ToDoArchiveEntry.class, ToDoTombstone.class, ChangeCounter.class
+    };
+
+    @Override
+    public void registerHints(RuntimeHints hints, ClassLoader classLoader) {
+        new BindingReflectionHintsRegistrar().registerReflectionHints(hints.reflection(), JSON_TYPES);
+        for (Class<?> entity : ENTITY_TYPES) {
+            hints.reflection().registerType(entity,
+                    MemberCategory.INVOKE_DECLARED_CONSTRUCTORS,
+                    MemberCategory.DECLARED_FIELDS,
+                    MemberCategory.INVOKE_DECLARED_METHODS);
+        }
+    }
+}
@@ -0,0 +1,293 @@
+package webtech.toDoListe;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.event.TransactionalEventListener;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Locale;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+
+/**
+ * Invertierter Index über Name und Beschreibung, getrennt nach Besitzer.
+ * Begriffe liegen sortiert in einer Skip-List, eine Präfixsuche ist damit ein Bereichszugriff
+ * und hängt von der Zahl passender Begriffe ab, nicht von der Zahl der Einträge.
+ * Wird beim Start aus der DB aufgebaut und danach über die ToDoChangeEvents nach dem Commit nachgezogen.
+ */
+@Component
+public class ToDoSearchIndex implements MeterBinder {
+
+    static final int NAME_WEIGHT = 3;
+    static final int DESCRIPTION_WEIGHT = 1;
+    // kürzere Suchbegriffe werden nur exakt gesucht, sonst liefert z.B. "a" fast jeden Eintrag
+    static final int MIN_PREFIX_LENGTH = 2;
+
+    private static final Pattern SEPARATORS = Pattern.compile("[^\\p{L}\\p{N}]+");
+
+    @Autowired
+    ToDoEntryRepository repo;
+
+    @Autowired
+    PlatformTransactionManager transactionManager;
+
+    Logger logger = LoggerFactory.getLogger(ToDoSearchIndex.class);
+
+    private final Map<String, OwnerIndex> owners = new ConcurrentHashMap<>();
+    // Löschungen während des Aufbaus, damit der Aufbau gelöschte Einträge nicht wieder einträgt
+    private final Set<Long> deletedWhileLoading = ConcurrentHashMap.newKeySet();
+    private volatile boolean ready;
+
+    // nach der Zuordnung alter Einträge zum Standardbenutzer, im Hintergrund, damit der Start nicht wartet
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(10)
+    public void rebuild() {
+        Thread.ofVirtual().name("search-index").start(() -> {
+            TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+            transaction.setReadOnly(true);
+            try {
+                transaction.executeWithoutResult(status -> {
+                    try (Stream<Object[]> rows = repo.streamSearchFields()) {
+                        load(rows);
+                    }
+                });
+            } catch (RuntimeException e) {
+                logger.warn("Suchindex konnte nicht aufgebaut werden, Suche bleibt bei der DB-Abfrage", e);
+            }
+        });
+    }
+
+    // Zeilen: id, owner, changeSeq, name, description
+    void load(Stream<Object[]> rows) {
+        long start = System.nanoTime();
+        long[] count = {0};
+        rows.forEach(row -> {
+            Long id = (Long) row[0];
+            String owner = (String) row[1];
+            if (owner != null && !deletedWhileLoading.contains(id)) {
+                index(owner, id, (Long) row[2], (String) row[3], (String) row[4]);
+                count[0]++;
+            }
+        });
+        deletedWhileLoading.clear();
+        ready = true;
+        logger.info("Suchindex mit {} Einträgen in {} ms aufgebaut", count[0], (System.nanoTime() - start) / 1_000_000);
+    }
+
+    @TransactionalEventListener(fallbackExecution = true)
+    public void onChange(ToDoChangeEvent event) {
+        switch (event.type()) {
+            case CREATED, UPDATED -> {
+                if (event.entry() != null) {
+                    ToDoEntry e = event.entry();
+                    index(event.owner(), event.id(), event.changeSeq(), e.getName(), e.getDescription());
+                } else if (event.patch() != null) {
+                    patch(event.owner(), event.id(), event.changeSeq(), event.patch());
+                }
+            }
+            case DELETED -> {
+                if (!ready) {
+                    deletedWhileLoading.add(event.id());
+                }
+                OwnerIndex index = owners.get(event.owner());
+                if (index != null) {
+                    index.remove(event.id());
+                }
+            }
+        }
+    }
+
+    /**
+     * Liefert die IDs der besten Treffer, absteigend nach Relevanz.
+     * Jedes Wort der Suche muss als Präfix eines Begriffs aus Name oder Beschreibung vorkommen.
+     * Gibt null zurück, solange der Index noch aufgebaut wird.
+     */
+    public List<Long> search(String owner, String query, int limit) {
+        if (!ready) {
+            return null;
+        }
+        Set<String> words = tokenize(query);
+        OwnerIndex index = owners.get(owner);
+        if (words.isEmpty() || index == null) {
+            return List.of();
+        }
+
+        Map<Long, Integer> scores = null;
+        for (String word : words) {
+            Map<Long, Integer> matches = index.match(word);
+            if (scores == null) {
+                scores = matches;
+            } else {
+                Map<Long, Integer> previous = scores;
+                matches.keySet().retainAll(previous.keySet());
+                matches.replaceAll((id, score) -> score + previous.get(id));
+                scores = matches;
+            }
+            if (scores.isEmpty()) {
+                return List.of();
+            }
+        }
+
+        // Top-k per Min-Heap, bei gleicher Relevanz zuerst die neueren Einträge
+        Comparator<Map.Entry<Long, Integer>> byRank = Map.Entry.<Long, Integer>comparingByValue()
+                .thenComparing(Map.Entry.comparingByKey());
+        PriorityQueue<Map.Entry<Long, Integer>> top = new PriorityQueue<>(limit + 1, byRank);
+        for (Map.Entry<Long, Integer> hit : scores.entrySet()) {
+            top.offer(hit);
+            if (top.size() > limit) {
+                top.poll();
+            }
+        }
+        List<Long> ids = new ArrayList<>(top.size());
+        while (!top.isEmpty()) {
+            ids.add(top.poll().getKey());
+        }
+        return ids.reversed();
+    }
+
+    public boolean isReady() {
+        return ready;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("todos.search.documents", owners,
+                        o -> o.values().stream().mapToInt(i -> i.docs.size()).sum())
+                .description("Einträge im Suchindex")
+                .register(registry);
+        Gauge.builder("todos.search.terms", owners,
+                        o -> o.values().stream().mapToInt(i -> i.terms.size()).sum())
+                .description("Begriffe im Suchindex")
+                .register(registry);
+    }
+
+    static Set<String> tokenize(String text) {
+        Set<String> tokens = new LinkedHashSet<>();
+        if (text == null) {
+            return tokens;
+        }
+        for (String token : SEPARATORS.split(text.toLowerCase(Locale.ROOT))) {
+            if (!token.isEmpty()) {
+                tokens.add(token);
+            }
+        }
+        return tokens;
+    }
+
+    private void index(String owner, Long id, long changeSeq, String name, String description) {
+        owners.computeIfAbsent(owner, o -> new OwnerIndex())
+                .put(id, changeSeq, tokenize(name), tokenize(description));
+    }
+
+    private void patch(String owner, Long id, long changeSeq, ToDoPatch patch) {
+        OwnerIndex index = owners.get(owner);
+        if (index == null || (patch.name() == null && patch.description() == null)) {
+            return;
+        }
+        index.patch(id, changeSeq,
+                patch.name() == null ? null : tokenize(patch.name()),
+                patch.description() == null ? null : tokenize(patch.description()));
+    }
+
+    private record Doc(long changeSeq, Set<String> nameTerms, Set<String> descriptionTerms) {
+
+        int weight(String term) {
+            return (nameTerms.contains(term) ? NAME_WEIGHT : 0)
+                    + (descriptionTerms.contains(term) ? DESCRIPTION_WEIGHT : 0);
+        }
+    }
+
+    // Schreibzugriffe eines Besitzers laufen nacheinander, Suchen lesen ohne Sperre
+    private static final class OwnerIndex {
+        final ConcurrentSkipListMap<String, Map<Long, Integer>> terms = new ConcurrentSkipListMap<>();
+        final Map<Long, Doc> docs = new ConcurrentHashMap<>();
+
+        synchronized void put(Long id, long changeSeq, Set<String> nameTerms, Set<String> descriptionTerms) {
+            Doc old = docs.get(id);
+            // ein Event kann den Aufbau aus der DB überholen, dann gewinnt die neuere Änderung
+            if (old != null && old.changeSeq() > changeSeq) {
+                return;
+            }
+            replace(id, old, new Doc(changeSeq, nameTerms, descriptionTerms));
+        }
+
+        synchronized void patch(Long id, long changeSeq, Set<String> nameTerms, Set<String> descriptionTerms) {
+            Doc old = docs.get(id);
+            if (old == null || old.changeSeq() > changeSeq) {
+                return;
+            }
+            replace(id, old, new Doc(changeSeq,
+                    nameTerms != null ? nameTerms : old.nameTerms(),
+                    descriptionTerms != null ? descriptionTerms : old.descriptionTerms()));
+        }
+
+        synchronized void remove(Long id) {
+            Doc old = docs.remove(id);
+            if (old != null) {
+                unlink(id, old);
+            }
+        }
+
+        // Summe der Gewichte aller Begriffe mit diesem Präfix, exakte Treffer zählen doppelt
+        Map<Long, Integer> match(String word) {
+            Map<Long, Integer> result = new HashMap<>();
+            Map<String, Map<Long, Integer>> candidates = word.length() < MIN_PREFIX_LENGTH
+                    ? singleTerm(word)
+                    : terms.subMap(word, true, word + Character.MAX_VALUE, false);
+            for (Map.Entry<String, Map<Long, Integer>> term : candidates.entrySet()) {
+                int factor = term.getKey().equals(word) ? 2 : 1;
+                term.getValue().forEach((id, weight) -> result.merge(id, weight * factor, Integer::sum));
+            }
+            return result;
+        }
+
+        private Map<String, Map<Long, Integer>> singleTerm(String word) {
+            Map<Long, Integer> postings = terms.get(word);
+            return postings == null ? Map.of() : Map.of(word, postings);
+        }
+
+        private void replace(Long id, Doc old, Doc doc) {
+            if (old != null) {
+                unlink(id, old);
+            }
+            docs.put(id, doc);
+            for (String term : union(doc)) {
+                terms.computeIfAbsent(term, t -> new ConcurrentHashMap<>()).put(id, doc.weight(term));
+            }
+        }
+
+        private void unlink(Long id, Doc doc) {
+            for (String term : union(doc)) {
+                terms.computeIfPresent(term, (t, postings) -> {
+                    postings.remove(id);
+                    return postings.isEmpty() ? null : postings;
+                });
+            }
+        }
+
+        private static Set<String> union(Doc doc) {
+            Set<String> all = new LinkedHashSet<>(doc.nameTerms());
+            all.addAll(doc.descriptionTerms());
+            return all;
+        }
+    }
+}
@@ -0,0 +1,7 @@
+package webtech.toDoListe;
+
+import java.time.LocalDateTime;
+
+// Listenansicht ohne Beschreibung, wird per Konstruktor-Projektion direkt aus den benötigten Spalten gebaut
+public record ToDoSummary(Long id, String name, LocalDateTime dueTime, boolean done, Long version) {
+}
@@ -0,0 +1,5 @@
+package webtech.toDoListe;
+
+// Antwort von GET /todos/tags: Anzahl offener und erledigter ToDos je Tag
+public record ToDoTagCount(String tag, Long open, Long done) {
+}
@@ -0,0 +1,44 @@
+package webtech.toDoListe;
+
+import jakarta.persistence.Entity;
+import jakarta.persistence.GeneratedValue;
+import jakarta.persistence.GenerationType;
+import jakarta.persistence.Id;
+import jakarta.persistence.Index;
+import jakarta.persistence.SequenceGenerator;
+import jakarta.persistence.Table;
+
+import java.time.LocalDateTime;
+
+// Merkt sich gelöschte ToDos, damit /todos/changes auch Löschungen melden kann
+@Entity
+@Table(indexes = @Index(name = "idx_tombstone_owner_change_seq", columnList = "owner, changeSeq"))
+public class ToDoTombstone {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.SEQUENCE, generator = "tombstone_seq")
+    @SequenceGenerator(name = "tombstone_seq", sequenceName = "to_do_tombstone_seq", allocationSize = 50)
+    private Long id;
+
+    private String owner;
+    private Long todoId;
+    private long changeSeq;
+    private LocalDateTime deletedAt;
+
+    public ToDoTombstone() {
+
+    }
+
+    public ToDoTombstone(String owner, Long todoId, long changeSeq) {
+        this.owner = owner;
+        this.todoId = todoId;
+        this.changeSeq = changeSeq;
+        this.deletedAt = LocalDateTime.now();
+    }
+
+    public Long getId() { return id; }
+    public String getOwner() { return owner; }
+    public Long getTodoId() { return todoId; }
+    public long getChangeSeq() { return changeSeq; }
+    public LocalDateTime getDeletedAt() { return deletedAt; }
+}
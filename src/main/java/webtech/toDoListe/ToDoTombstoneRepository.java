@@ -0,0 +1,13 @@
+package webtech.toDoListe;
+
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.CrudRepository;
+
+import java.util.List;
+
+public interface ToDoTombstoneRepository extends CrudRepository<ToDoTombstone, Long> {
+
+    @Query("select t.todoId from ToDoTombstone t where t.owner = :owner and t.changeSeq > :since "
+            + "and t.changeSeq <= :until")
+    List<Long> findDeletedIds(String owner, long since, long until);
+}
@@ -0,0 +1,445 @@
+package webtech.toDoListe;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.annotation.Lazy;
+import org.springframework.context.event.EventListener;
+import org.springframework.core.annotation.Order;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.io.BufferedInputStream;
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedChannelException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Optionaler Write-Behind für done-Umschaltungen (app.write-behind.enabled).
+ * Eine Umschaltung gilt als angenommen, sobald sie im lokalen Append-Log steht; mehrere Umschaltungen
+ * derselben ID werden im Speicher zusammengefasst und periodisch als ein UPDATE je Wert in die DB geschrieben.
+ * Das Log ist in Segmente geteilt: beim Flush beginnt ein neues Segment, die alten werden erst nach
+ * erfolgreichem Schreiben gelöscht. Nach einem Absturz spielt der Start alle Segmente der Reihe nach ein.
+ * Während ein Flush läuft, bleiben seine Umschaltungen als "inFlight" sichtbar. Ein synchroner Schreibzugriff
+ * verwirft sie dort per discard; applyDone sperrt zuerst die Zeilen und schreibt dann nur die IDs, die noch
+ * inFlight sind. So überschreibt ein Flush nie einen neueren synchronen Schreibzugriff.
+ */
+@Component
+public class ToDoWriteBehind implements MeterBinder {
+
+    /**
+     * FSYNC: vor der Antwort per fsync auf der Platte, übersteht auch Stromausfall.
+     * WRITE: vor der Antwort nur im Page-Cache des Betriebssystems, übersteht den Absturz der Anwendung,
+     * aber nicht den des Rechners; fsync dann beim nächsten Flush.
+     */
+    public enum Durability { FSYNC, WRITE }
+
+    private static final byte SET_FALSE = 0;
+    private static final byte SET_TRUE = 1;
+    // ein synchroner Schreibzugriff hat die ausstehende Umschaltung überholt
+    private static final byte DISCARD = 2;
+
+    private static final String SEGMENT_PREFIX = "done-";
+    private static final String SEGMENT_SUFFIX = ".log";
+
+    // @Lazy, weil der Service selbst den Write-Behind benutzt
+    @Autowired
+    @Lazy
+    ToDoEntryService service;
+
+    Logger logger = LoggerFactory.getLogger(ToDoWriteBehind.class);
+
+    private final boolean enabled;
+    private final Path directory;
+    private final Durability durability;
+
+    private final Object lock = new Object();
+    // ID -> ausstehende Umschaltung, nur unter lock ändern
+    private Map<Long, Pending> pending = new LinkedHashMap<>();
+    // Umschaltungen des laufenden Flushs, noch nicht committet; nur unter lock ändern
+    private Map<Long, Pending> inFlight = new LinkedHashMap<>();
+    // Besitzer -> Anzahl Einträge in pending und inFlight, damit hasPending nicht alles durchsuchen muss
+    private final Map<String, Integer> countByOwner = new HashMap<>();
+    private FileChannel segment;
+    private long segmentNumber;
+
+    private final AtomicLong appended = new AtomicLong();
+    private final AtomicLong flushedRows = new AtomicLong();
+
+    record Pending(String owner, Long id, boolean done) {
+    }
+
+    public ToDoWriteBehind(@Value("${app.write-behind.enabled:false}") boolean enabled,
+                           @Value("${app.write-behind.dir:data/write-behind}") Path directory,
+                           @Value("${app.write-behind.durability:FSYNC}") Durability durability) {
+        this.enabled = enabled;
+        this.directory = directory;
+        this.durability = durability;
+    }
+
+    public boolean isEnabled() {
+        return enabled;
+    }
+
+    /**
+     * Spielt beim Start übrig gebliebene Segmente ein, auch wenn der Write-Behind inzwischen ausgeschaltet ist,
+     * denn deren Umschaltungen wurden den Clients bereits bestätigt.
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    @Order(5)
+    public void recover() throws IOException {
+        List<Path> segments = segments();
+        if (!enabled && segments.isEmpty()) {
+            return;
+        }
+        int recovered;
+        synchronized (lock) {
+            for (Path path : segments) {
+                replay(path, pending);
+            }
+            for (Pending p : pending.values()) {
+                count(p.owner(), 1);
+            }
+            recovered = pending.size();
+            openSegment(segments.isEmpty() ? 1 : number(segments.getLast()) + 1);
+        }
+        if (recovered > 0) {
+            logger.info("{} ausstehende done-Umschaltungen aus {} Log-Segmenten wiederhergestellt",
+                    recovered, segments.size());
+            flush();
+        } else {
+            deleteSegmentsBefore(segmentNumber);
+        }
+        if (!enabled) {
+            closeSegment();
+            if (pendingDoneCount() == 0) {
+                deleteSegmentsBefore(Long.MAX_VALUE);
+            }
+        }
+    }
+
+    // schreibt die Umschaltung ins Log, kehrt je nach Durability erst nach fsync zurück
+    public void append(String owner, Long id, boolean done) {
+        FileChannel channel;
+        synchronized (lock) {
+            channel = write(owner, id, done ? SET_TRUE : SET_FALSE);
+            if (pending.put(id, new Pending(owner, id, done)) == null) {
+                count(owner, 1);
+            }
+        }
+        appended.incrementAndGet();
+        if (durability == Durability.FSYNC) {
+            // fsync außerhalb des Locks, damit parallele Umschaltungen nicht aufeinander warten
+            try {
+                channel.force(false);
+            } catch (ClosedChannelException e) {
+                // ein Flush hat das Segment inzwischen gewechselt; er macht vor dem Schließen selbst fsync
+            } catch (IOException e) {
+                throw new UncheckedIOException("Write-Behind-Log konnte nicht gesichert werden", e);
+            }
+        }
+    }
+
+    // ausstehender oder gerade geschriebener done-Wert, sonst null
+    public Boolean pendingDone(Long id) {
+        synchronized (lock) {
+            Pending p = pending.get(id);
+            if (p == null) {
+                p = inFlight.get(id);
+            }
+            return p == null ? null : p.done();
+        }
+    }
+
+    public boolean hasPending(String owner) {
+        synchronized (lock) {
+            return countByOwner.containsKey(owner);
+        }
+    }
+
+    /**
+     * Verwirft die ausstehende Umschaltung, weil ein synchroner Schreibzugriff auf dieselbe ID sie ersetzt,
+     * auch wenn sie gerade von einem Flush geschrieben wird (der lässt sie dann aus).
+     * Umschaltungen eines anderen Besitzers bleiben stehen. Gibt den verworfenen done-Wert zurück.
+     */
+    public Boolean discard(String owner, Long id) {
+        synchronized (lock) {
+            Pending removed = removeOwned(pending, owner, id);
+            Pending removedInFlight = removeOwned(inFlight, owner, id);
+            if (removed == null && removedInFlight == null) {
+                return null;
+            }
+            if (removed != null) {
+                count(owner, -1);
+            }
+            if (removedInFlight != null) {
+                count(owner, -1);
+            }
+            write(owner, id, DISCARD);
+            return removed != null ? removed.done() : removedInFlight.done();
+        }
+    }
+
+    /**
+     * Die IDs, die der laufende Flush noch schreiben darf. applyDone ruft das auf, nachdem es die Zeilen
+     * gesperrt hat: ein synchroner Schreibzugriff hat dann entweder schon discard aufgerufen oder wartet
+     * auf die Sperre und schreibt danach.
+     */
+    public List<Long> stillInFlight(Collection<Long> ids) {
+        synchronized (lock) {
+            return ids.stream().filter(inFlight::containsKey).toList();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${app.write-behind.flush-interval:PT1S}")
+    public void flush() {
+        Map<String, Map<Long, Boolean>> byOwner = new HashMap<>();
+        long firstKeptSegment;
+        synchronized (lock) {
+            if (segment == null || pending.isEmpty()) {
+                return;
+            }
+            // alles bis hierhin steht im aktuellen Segment, neue Umschaltungen landen im nächsten
+            force(segment);
+            inFlight = pending;
+            pending = new LinkedHashMap<>();
+            for (Pending p : inFlight.values()) {
+                byOwner.computeIfAbsent(p.owner(), o -> new LinkedHashMap<>()).put(p.id(), p.done());
+            }
+            firstKeptSegment = segmentNumber + 1;
+            openSegment(firstKeptSegment);
+        }
+
+        boolean complete = true;
+        for (Map.Entry<String, Map<Long, Boolean>> entry : byOwner.entrySet()) {
+            try {
+                flushedRows.addAndGet(service.applyDone(entry.getKey(), entry.getValue()));
+            } catch (RuntimeException e) {
+                logger.warn("done-Umschaltungen für {} konnten nicht geschrieben werden, neuer Versuch beim nächsten Flush",
+                        entry.getKey(), e);
+                complete = false;
+                restore(entry.getKey());
+            }
+        }
+        synchronized (lock) {
+            for (Pending p : inFlight.values()) {
+                count(p.owner(), -1);
+            }
+            inFlight = new LinkedHashMap<>();
+        }
+        // fehlgeschlagene Umschaltungen stehen noch in den alten Segmenten, die bleiben dann liegen
+        if (complete) {
+            deleteSegmentsBefore(firstKeptSegment);
+        }
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+        closeSegment();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("todos.write-behind.pending", this, ToDoWriteBehind::pendingDoneCount)
+                .description("Angenommene, noch nicht in die DB geschriebene done-Umschaltungen")
+                .register(registry);
+        FunctionCounter.builder("todos.write-behind.appended", appended, AtomicLong::get)
+                .description("Ins Log geschriebene done-Umschaltungen")
+                .register(registry);
+        FunctionCounter.builder("todos.write-behind.flushed", flushedRows, AtomicLong::get)
+                .description("Nach dem Zusammenfassen in die DB geschriebene Zeilen")
+                .register(registry);
+    }
+
+    private int pendingDoneCount() {
+        synchronized (lock) {
+            return pending.size();
+        }
+    }
+
+    // nicht überschreiben, was seit dem Flush neu umgeschaltet wurde; verworfene stehen nicht mehr in inFlight
+    private void restore(String owner) {
+        synchronized (lock) {
+            for (Pending p : inFlight.values()) {
+                if (p.owner().equals(owner) && pending.putIfAbsent(p.id(), p) == null) {
+                    count(owner, 1);
+                }
+            }
+        }
+    }
+
+    // nur unter lock aufrufen
+    private static Pending removeOwned(Map<Long, Pending> from, String owner, Long id) {
+        Pending p = from.get(id);
+        if (p == null || !p.owner().equals(owner)) {
+            return null;
+        }
+        return from.remove(id);
+    }
+
+    // nur unter lock aufrufen
+    private void count(String owner, int delta) {
+        countByOwner.merge(owner, delta, (a, b) -> a + b == 0 ? null : a + b);
+    }
+
+    // Satz: Länge, [Typ, ID, Besitzer], CRC32 – ein abgerissener letzter Satz wird beim Einspielen ignoriert
+    private FileChannel write(String owner, Long id, byte type) {
+        if (segment == null) {
+            throw new IllegalStateException("Write-Behind ist nicht aktiv");
+        }
+        try {
+            ByteArrayOutputStream bytes = new ByteArrayOutputStream(64);
+            DataOutputStream out = new DataOutputStream(bytes);
+            out.writeByte(type);
+            out.writeLong(id);
+            out.writeUTF(owner);
+            byte[] payload = bytes.toByteArray();
+            CRC32 crc = new CRC32();
+            crc.update(payload);
+            ByteBuffer record = ByteBuffer.allocate(4 + payload.length + 8)
+                    .putInt(payload.length)
+                    .put(payload)
+                    .putLong(crc.getValue())
+                    .flip();
+            while (record.hasRemaining()) {
+                segment.write(record);
+            }
+            return segment;
+        } catch (IOException e) {
+            throw new UncheckedIOException("Write-Behind-Log nicht beschreibbar", e);
+        }
+    }
+
+    private void replay(Path path, Map<Long, Pending> into) throws IOException {
+        try (InputStream file = Files.newInputStream(path);
+             DataInputStream in = new DataInputStream(new BufferedInputStream(file))) {
+            while (true) {
+                int length;
+                byte[] payload;
+                long checksum;
+                try {
+                    length = in.readInt();
+                    if (length <= 0 || length > 1024) {
+                        logger.warn("Ungültiger Satz in {}, Rest wird ignoriert", path);
+                        return;
+                    }
+                    payload = in.readNBytes(length);
+                    checksum = in.readLong();
+                } catch (EOFException e) {
+                    return;
+                }
+                CRC32 crc = new CRC32();
+                crc.update(payload);
+                if (payload.length != length || crc.getValue() != checksum) {
+                    logger.warn("Abgerissener Satz am Ende von {}, wird ignoriert", path);
+                    return;
+                }
+                DataInputStream record = new DataInputStream(new ByteArrayInputStream(payload));
+                byte type = record.readByte();
+                long id = record.readLong();
+                String owner = record.readUTF();
+                if (type == DISCARD) {
+                    into.remove(id);
+                } else {
+                    into.put(id, new Pending(owner, id, type == SET_TRUE));
+                }
+            }
+        }
+    }
+
+    private void openSegment(long number) {
+        try {
+            Files.createDirectories(directory);
+            FileChannel previous = segment;
+            segment = FileChannel.open(directory.resolve(SEGMENT_PREFIX + number + SEGMENT_SUFFIX),
+                    StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND);
+            segmentNumber = number;
+            if (previous != null) {
+                previous.close();
+            }
+        } catch (IOException e) {
+            throw new UncheckedIOException("Write-Behind-Log konnte nicht geöffnet werden", e);
+        }
+    }
+
+    private void closeSegment() {
+        synchronized (lock) {
+            if (segment != null) {
+                try {
+                    segment.force(false);
+                    segment.close();
+                } catch (IOException e) {
+                    logger.warn("Write-Behind-Log konnte nicht geschlossen werden", e);
+                }
+                segment = null;
+            }
+        }
+    }
+
+    private void force(FileChannel channel) {
+        try {
+            channel.force(false);
+        } catch (IOException e) {
+            throw new UncheckedIOException("Write-Behind-Log konnte nicht gesichert werden", e);
+        }
+    }
+
+    private void deleteSegmentsBefore(long number) {
+        try {
+            for (Path path : segments()) {
+                if (number(path) < number) {
+                    Files.deleteIfExists(path);
+                }
+            }
+        } catch (IOException e) {
+            logger.warn("Alte Write-Behind-Segmente konnten nicht gelöscht werden", e);
+        }
+    }
+
+    private List<Path> segments() throws IOException {
+        if (!Files.isDirectory(directory)) {
+            return List.of();
+        }
+        try (Stream<Path> files = Files.list(directory)) {
+            List<Path> segments = new ArrayList<>(files
+                    .filter(p -> p.getFileName().toString().startsWith(SEGMENT_PREFIX))
+                    .filter(p -> p.getFileName().toString().endsWith(SEGMENT_SUFFIX))
+                    .toList());
+            segments.sort((a, b) -> Long.compare(number(a), number(b)));
+            return segments;
+        }
+    }
+
+    private static long number(Path segment) {
+        String name = segment.getFileName().toString();
+        return Long.parseLong(name.substring(SEGMENT_PREFIX.length(), name.length() - SEGMENT_SUFFIX.length()));
+    }
+}
@@ -0,0 +1,126 @@
+package webtech.toDoListe;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Base64;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Stellt selbsttragende, per HMAC-SHA256 signierte Tokens aus und prüft sie ohne DB-Zugriff.
+ * Aufbau: base64url(username|expiresAt|tokenId) + "." + base64url(signatur).
+ * Widerrufene Tokens stehen nur bis zu ihrem Ablauf in einer Map tokenId -> expiresAt.
+ */
+@Component
+public class TokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    Logger logger = LoggerFactory.getLogger(TokenService.class);
+
+    private final SecureRandom random = new SecureRandom();
+    private final SecretKeySpec key;
+    private final Mac prototype;
+    private final long ttlSeconds;
+    private final ConcurrentHashMap<Long, Long> revoked = new ConcurrentHashMap<>();
+
+    public TokenService(@Value("${app.auth.secret:}") String secret,
+                        @Value("${app.auth.token-ttl:PT12H}") Duration ttl) {
+        byte[] keyBytes;
+        if (secret == null || secret.isBlank()) {
+            keyBytes = new byte[32];
+            random.nextBytes(keyBytes);
+            logger.warn("app.auth.secret ist nicht gesetzt, Tokens gelten nur bis zum Neustart dieser Instanz");
+        } else {
+            keyBytes = secret.getBytes(StandardCharsets.UTF_8);
+        }
+        this.key = new SecretKeySpec(keyBytes, ALGORITHM);
+        this.prototype = newMac();
+        this.ttlSeconds = ttl.toSeconds();
+    }
+
+    public String issue(String username) {
+        long expiresAt = Instant.now().getEpochSecond() + ttlSeconds;
+        String payload = username + "|" + expiresAt + "|" + random.nextLong();
+        String encoded = ENCODER.encodeToString(payload.getBytes(StandardCharsets.UTF_8));
+        return encoded + "." + ENCODER.encodeToString(sign(encoded));
+    }
+
+    // null, wenn das Token kaputt, manipuliert, abgelaufen oder widerrufen ist
+    public AuthToken validate(String token) {
+        if (token == null) {
+            return null;
+        }
+        int dot = token.indexOf('.');
+        if (dot <= 0 || dot == token.length() - 1) {
+            return null;
+        }
+        try {
+            String encoded = token.substring(0, dot);
+            byte[] signature = DECODER.decode(token.substring(dot + 1));
+            if (!MessageDigest.isEqual(signature, sign(encoded))) {
+                return null;
+            }
+
+            String payload = new String(DECODER.decode(encoded), StandardCharsets.UTF_8);
+            int last = payload.lastIndexOf('|');
+            int middle = payload.lastIndexOf('|', last - 1);
+            AuthToken parsed = new AuthToken(
+                    payload.substring(0, middle),
+                    Long.parseLong(payload.substring(last + 1)),
+                    Long.parseLong(payload.substring(middle + 1, last)));
+
+            if (parsed.expiresAt() <= Instant.now().getEpochSecond() || revoked.containsKey(parsed.tokenId())) {
+                return null;
+            }
+            return parsed;
+        } catch (IllegalArgumentException | IndexOutOfBoundsException e) {
+            return null;
+        }
+    }
+
+    public void revoke(AuthToken token) {
+        revoked.put(token.tokenId(), token.expiresAt());
+    }
+
+    // abgelaufene Tokens sind sowieso ungültig und müssen nicht mehr in der Sperrliste stehen
+    @Scheduled(fixedRate = 60_000)
+    public void purgeRevoked() {
+        long now = Instant.now().getEpochSecond();
+        revoked.values().removeIf(expiresAt -> expiresAt <= now);
+    }
+
+    private byte[] sign(String encodedPayload) {
+        Mac mac;
+        try {
+            // Mac ist nicht threadsicher, ein Klon der initialisierten Instanz spart das erneute init
+            mac = (Mac) prototype.clone();
+        } catch (CloneNotSupportedException e) {
+            mac = newMac();
+        }
+        return mac.doFinal(encodedPayload.getBytes(StandardCharsets.US_ASCII));
+    }
+
+    private Mac newMac() {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac;
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+}
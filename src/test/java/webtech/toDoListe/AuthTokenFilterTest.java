@@ -0,0 +1,89 @@
+package webtech.toDoListe;
+
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für {@link AuthTokenFilter} mit echtem {@link TokenService} (ohne Spring Context).
+ */
+class AuthTokenFilterTest {
+
+    TokenService tokens = new TokenService("test-secret", Duration.ofHours(1));
+
+    AuthTokenFilter filter = new AuthTokenFilter(tokens);
+
+    FilterChain chain = mock(FilterChain.class);
+
+    /**
+     * Testet, ob ein Request ohne Token mit 401 und WWW-Authenticate abgelehnt wird.
+     */
+    @Test
+    void missingToken_returns401() throws Exception {
+        MockHttpServletResponse response = filter(todosRequest(null));
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        assertThat(response.getHeader("WWW-Authenticate")).isEqualTo("Bearer");
+        verify(chain, never()).doFilter(any(), any());
+    }
+
+    /**
+     * Testet, ob ein ungültiges Token mit 401 abgelehnt wird.
+     */
+    @Test
+    void invalidToken_returns401() throws Exception {
+        MockHttpServletResponse response = filter(todosRequest("Bearer kein-token"));
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        verify(chain, never()).doFilter(any(), any());
+    }
+
+    /**
+     * Testet, ob ein nach dem Logout widerrufenes Token mit 401 abgelehnt wird.
+     */
+    @Test
+    void revokedToken_returns401() throws Exception {
+        String token = tokens.issue("testuser");
+        tokens.revoke(tokens.validate(token));
+
+        MockHttpServletResponse response = filter(todosRequest("Bearer " + token));
+
+        assertThat(response.getStatus()).isEqualTo(401);
+        verify(chain, never()).doFilter(any(), any());
+    }
+
+    /**
+     * Testet, ob ein gültiges Token durchgelassen wird und den Benutzer als Request-Attribut setzt.
+     */
+    @Test
+    void validToken_setsUserAttribute() throws Exception {
+        MockHttpServletRequest request = todosRequest("Bearer " + tokens.issue("testuser"));
+
+        MockHttpServletResponse response = filter(request);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(request.getAttribute(AuthTokenFilter.USER_ATTRIBUTE)).isEqualTo("testuser");
+        verify(chain).doFilter(request, response);
+    }
+
+    private MockHttpServletResponse filter(MockHttpServletRequest request) throws Exception {
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        filter.doFilter(request, response, chain);
+        return response;
+    }
+
+    private static MockHttpServletRequest todosRequest(String authorization) {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/todos");
+        if (authorization != null) {
+            request.addHeader("Authorization", authorization);
+        }
+        return request;
+    }
+}
@@ -0,0 +1,115 @@
+package webtech.toDoListe;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import jakarta.servlet.FilterChain;
+import org.junit.jupiter.api.Test;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.time.Duration;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für {@link RateLimiter} und {@link RateLimitFilter} (ohne Spring Context).
+ */
+class RateLimiterTest {
+
+    AtomicLong now = new AtomicLong();
+
+    RateLimiter limiter = new RateLimiter("test", 1, 3, 100, now::get);
+
+    /**
+     * Testet, ob ein Burst bis zur Grenze durchgeht, danach die Wartezeit bis zur nächsten
+     * erlaubten Anfrage geliefert wird und die Schlüssel getrennt zählen.
+     */
+    @Test
+    void tryAcquire_allowsBurstThenReturnsWaitTime() {
+        assertThat(limiter.tryAcquire("anna")).isZero();
+        assertThat(limiter.tryAcquire("anna")).isZero();
+        assertThat(limiter.tryAcquire("anna")).isZero();
+        assertThat(limiter.tryAcquire("anna")).isEqualTo(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.tryAcquire("ben")).isZero();
+
+        now.addAndGet(TimeUnit.SECONDS.toNanos(1));
+        assertThat(limiter.tryAcquire("anna")).isZero();
+        assertThat(limiter.tryAcquire("anna")).isPositive();
+    }
+
+    /**
+     * Testet, ob der Filter über dem Limit mit 429 und Retry-After antwortet und die Ablehnung zählt.
+     */
+    @Test
+    void filter_returns429WithRetryAfter() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RateLimitFilter filter = new RateLimitFilter(
+                new RateLimiter("login", 1, 1, 100), new RateLimiter("read", 1, 1, 100),
+                new RateLimiter("write", 1, 1, 100), 10, Duration.ZERO, registry);
+        FilterChain chain = mock(FilterChain.class);
+
+        MockHttpServletResponse first = new MockHttpServletResponse();
+        filter.doFilter(todosRequest(), first, chain);
+        MockHttpServletResponse second = new MockHttpServletResponse();
+        filter.doFilter(todosRequest(), second, chain);
+
+        assertThat(first.getStatus()).isEqualTo(200);
+        assertThat(second.getStatus()).isEqualTo(429);
+        assertThat(second.getHeader("Retry-After")).isEqualTo("1");
+        verify(chain, times(1)).doFilter(any(), any());
+        assertThat(registry.get("todos.requests.rejected").tag("quota", "read").counter().count()).isEqualTo(1);
+    }
+
+    /**
+     * Testet, ob der Filter ohne freien Platz sofort mit 503 antwortet.
+     */
+    @Test
+    void filter_returns503_whenNoCapacity() throws Exception {
+        RateLimitFilter filter = new RateLimitFilter(
+                new RateLimiter("login", 1, 1, 100), new RateLimiter("read", 100, 100, 100),
+                new RateLimiter("write", 1, 1, 100), 0, Duration.ZERO, new SimpleMeterRegistry());
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        filter.doFilter(todosRequest(), response, mock(FilterChain.class));
+
+        assertThat(response.getStatus()).isEqualTo(503);
+        assertThat(response.getHeader("Retry-After")).isEqualTo("1");
+    }
+
+    /**
+     * Testet, ob ein gestreamter Request seinen Platz erst nach dem Ende des asynchronen Teils freigibt,
+     * eine SSE-Verbindung dagegen sofort.
+     */
+    @Test
+    void filter_holdsPermitUntilAsyncResponseCompletes() throws Exception {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        RateLimitFilter filter = new RateLimitFilter(
+                new RateLimiter("login", 1, 1, 100), new RateLimiter("read", 100, 100, 100),
+                new RateLimiter("write", 1, 1, 100), 10, Duration.ZERO, registry);
+        FilterChain startsAsync = (req, res) -> req.startAsync();
+
+        MockHttpServletRequest stream = new MockHttpServletRequest("GET", "/todos/stream");
+        stream.setAttribute(AuthTokenFilter.USER_ATTRIBUTE, "anna");
+        stream.setAsyncSupported(true);
+        filter.doFilter(stream, new MockHttpServletResponse(), startsAsync);
+        assertThat(registry.get("todos.requests.in_flight").gauge().value()).isEqualTo(1);
+
+        MockHttpServletRequest events = new MockHttpServletRequest("GET", "/todos/events");
+        events.setAttribute(AuthTokenFilter.USER_ATTRIBUTE, "anna");
+        events.setAsyncSupported(true);
+        filter.doFilter(events, new MockHttpServletResponse(), startsAsync);
+        assertThat(registry.get("todos.requests.in_flight").gauge().value()).isEqualTo(1);
+
+        stream.getAsyncContext().complete();
+        assertThat(registry.get("todos.requests.in_flight").gauge().value()).isZero();
+    }
+
+    private static MockHttpServletRequest todosRequest() {
+        MockHttpServletRequest request = new MockHttpServletRequest("GET", "/todos");
+        request.setAttribute(AuthTokenFilter.USER_ATTRIBUTE, "anna");
+        return request;
+    }
+}
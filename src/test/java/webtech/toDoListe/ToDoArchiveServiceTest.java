@@ -0,0 +1,160 @@
+package webtech.toDoListe;
+
+import jakarta.persistence.EntityManager;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.context.ApplicationEventPublisher;
+import org.springframework.data.domain.Limit;
+import org.springframework.transaction.PlatformTransactionManager;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für {@link ToDoArchiveService} (gemockte Repositories, ohne Spring Context).
+ */
+class ToDoArchiveServiceTest {
+
+    ToDoArchiveService service = new ToDoArchiveService(true, Duration.ofDays(30), 2, Duration.ZERO);
+
+    LocalDateTime cutoff = LocalDateTime.now().minusDays(30);
+
+    @BeforeEach
+    void setUp() {
+        service.repo = mock(ToDoEntryRepository.class);
+        service.archive = mock(ToDoArchiveRepository.class);
+        service.tombstones = mock(ToDoTombstoneRepository.class);
+        service.changeSequence = mock(ChangeSequence.class);
+        service.cache = spy(new ToDoEntryCache(100, Duration.ofMinutes(10), true));
+        service.writeBehind = mock(ToDoWriteBehind.class);
+        service.events = mock(ApplicationEventPublisher.class);
+        service.entityManager = mock(EntityManager.class);
+        service.transactionManager = mock(PlatformTransactionManager.class);
+    }
+
+    /**
+     * Testet, ob ein Block kopiert, aus der Haupttabelle gelöscht und je Besitzer mit einer
+     * Änderungsnummer als gelöscht gemeldet wird (Tombstones, Events, Cache).
+     */
+    @Test
+    void archiveBatch_copiesDeletesAndWritesTombstones() {
+        ToDoEntry anna = entry(1L, "anna");
+        anna.setTags(List.of("privat", "arbeit"));
+        ToDoEntry ben = entry(2L, "ben");
+        when(service.repo.findArchivable(cutoff, 0L, Limit.of(2))).thenReturn(List.of(anna, ben));
+        when(service.changeSequence.next("anna")).thenReturn(7L);
+        when(service.changeSequence.next("ben")).thenReturn(3L);
+
+        ToDoArchiveService.Batch batch = service.archiveBatch(cutoff, 0L);
+
+        assertThat(batch.moved()).isEqualTo(2);
+        assertThat(batch.lastId()).isEqualTo(2L);
+        ArgumentCaptor<ToDoArchiveEntry> copies = ArgumentCaptor.forClass(ToDoArchiveEntry.class);
+        verify(service.entityManager, times(2)).persist(copies.capture());
+        assertThat(copies.getAllValues()).extracting(ToDoArchiveEntry::getId).containsExactly(1L, 2L);
+        assertThat(copies.getAllValues().get(0).getTags()).containsExactly("arbeit", "privat");
+        verify(service.repo).deleteAllByIdIn(List.of(1L, 2L));
+        ArgumentCaptor<List<ToDoTombstone>> tombstones = ArgumentCaptor.captor();
+        verify(service.tombstones).saveAll(tombstones.capture());
+        assertThat(tombstones.getValue()).extracting(ToDoTombstone::getChangeSeq).containsExactly(7L, 3L);
+        verify(service.cache).evict("anna", 1L);
+        verify(service.events, times(2)).publishEvent(any(ToDoChangeEvent.class));
+    }
+
+    /**
+     * Testet, ob ein Eintrag mit ausstehender Write-Behind-Umschaltung (z.B. per 202 wieder geöffnet)
+     * nicht archiviert und seine Umschaltung nicht verworfen wird.
+     */
+    @Test
+    void archiveBatch_skipsEntriesWithPendingToggle() {
+        when(service.repo.findArchivable(cutoff, 0L, Limit.of(2))).thenReturn(List.of(entry(1L, "anna"), entry(2L, "anna")));
+        when(service.writeBehind.pendingDone(1L)).thenReturn(false);
+
+        ToDoArchiveService.Batch batch = service.archiveBatch(cutoff, 0L);
+
+        assertThat(batch.found()).isEqualTo(2);
+        assertThat(batch.moved()).isEqualTo(1);
+        verify(service.repo).deleteAllByIdIn(List.of(2L));
+        verify(service.writeBehind, never()).discard("anna", 1L);
+        verify(service.entityManager, times(1)).persist(any(ToDoArchiveEntry.class));
+    }
+
+    /**
+     * Testet, ob ein Lauf nach einem vollen Block mit übersprungenem Eintrag hinter dessen letzter ID weitermacht,
+     * statt bis zum nächsten Intervall aufzuhören.
+     */
+    @Test
+    void archiveOld_continuesAfterBatchWithSkippedEntries() {
+        when(service.repo.findArchivable(any(), eq(0L), eq(Limit.of(2))))
+                .thenReturn(List.of(entry(1L, "anna"), entry(2L, "anna")));
+        when(service.repo.findArchivable(any(), eq(2L), eq(Limit.of(2)))).thenReturn(List.of(entry(3L, "anna")));
+        when(service.writeBehind.pendingDone(1L)).thenReturn(false);
+
+        service.archiveOld();
+
+        verify(service.repo).deleteAllByIdIn(List.of(2L));
+        verify(service.repo).deleteAllByIdIn(List.of(3L));
+        verify(service.repo, times(2)).findArchivable(any(), anyLong(), any());
+    }
+
+    /**
+     * Testet, ob ohne passende Einträge nichts geschrieben wird.
+     */
+    @Test
+    void archiveBatch_doesNothing_whenNothingOld() {
+        when(service.repo.findArchivable(eq(cutoff), anyLong(), any())).thenReturn(List.of());
+
+        assertThat(service.archiveBatch(cutoff, 0L).found()).isZero();
+        verify(service.repo, never()).deleteAllByIdIn(anyList());
+        verifyNoInteractions(service.tombstones, service.events);
+    }
+
+    /**
+     * Testet, ob die Archivseite eine Zeile mehr liest und daraus den Cursor für die nächste Seite bildet.
+     */
+    @Test
+    void getPage_returnsCursor_whenMoreEntries() {
+        List<ToDoArchiveEntry> rows = List.of(archived(9L), archived(8L), archived(5L));
+        when(service.archive.findByOwnerOrderByIdDesc("anna", Limit.of(3))).thenReturn(rows);
+        when(service.archive.findByOwnerAndIdLessThanOrderByIdDesc("anna", 8L, Limit.of(3))).thenReturn(List.of(archived(5L)));
+
+        ToDoArchivePage first = service.getPage("anna", null, 2);
+        ToDoArchivePage second = service.getPage("anna", first.nextCursor(), 2);
+
+        assertThat(first.items()).extracting(ToDoArchiveEntry::getId).containsExactly(9L, 8L);
+        assertThat(first.nextCursor()).isEqualTo("8");
+        assertThat(second.items()).extracting(ToDoArchiveEntry::getId).containsExactly(5L);
+        assertThat(second.nextCursor()).isNull();
+    }
+
+    /**
+     * Testet, ob ein fremder oder nicht archivierter Eintrag als 404 gemeldet wird.
+     */
+    @Test
+    void get_throwsNotFound_whenNotArchived() {
+        when(service.archive.findByIdAndOwner(4L, "anna")).thenReturn(Optional.empty());
+
+        assertThatThrownBy(() -> service.get("anna", 4L)).isInstanceOf(ToDoNotFoundException.class);
+    }
+
+    private static ToDoEntry entry(Long id, String owner) {
+        ToDoEntry entry = new ToDoEntry("Erledigt", null, null, true);
+        entry.setId(id);
+        entry.setOwner(owner);
+        return entry;
+    }
+
+    private static ToDoArchiveEntry archived(Long id) {
+        return new ToDoArchiveEntry(entry(id, "anna"), LocalDateTime.now());
+    }
+}
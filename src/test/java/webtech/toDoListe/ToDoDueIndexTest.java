@@ -0,0 +1,103 @@
+package webtech.toDoListe;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.context.ApplicationEventPublisher;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für {@link ToDoDueIndex} (ohne Spring Context).
+ */
+class ToDoDueIndexTest {
+
+    ToDoDueIndex index = new ToDoDueIndex(Duration.ofDays(7));
+
+    LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        index.events = mock(ApplicationEventPublisher.class);
+        index.load(Stream.of(
+                new Object[]{1L, "anna", now.minusDays(2)},
+                new Object[]{2L, "anna", now.plusHours(2)},
+                new Object[]{3L, "anna", now.plusDays(2)},
+                new Object[]{4L, "ben", now.minusHours(1)}), now.plusDays(7));
+    }
+
+    /**
+     * Testet, ob überfällige und bald fällige Einträge getrennt nach Besitzer und zeitlich sortiert geliefert werden.
+     */
+    @Test
+    void overdueAndUpcoming_areSortedAndScopedToOwner() {
+        assertThat(index.overdue("anna", 10)).containsExactly(1L);
+        assertThat(index.upcoming("anna", Duration.ofDays(1), 10)).containsExactly(2L);
+        assertThat(index.upcoming("anna", Duration.ofDays(3), 10)).containsExactly(2L, 3L);
+        assertThat(index.overdue("ben", 10)).containsExactly(4L);
+    }
+
+    /**
+     * Testet, ob ein erledigter Eintrag aus dem Index verschwindet.
+     */
+    @Test
+    void onChange_removesDoneEntries() {
+        ToDoEntry done = new ToDoEntry("Zahnarzt", null, now.plusHours(2), true);
+        done.setId(2L);
+        done.setOwner("anna");
+        index.onChange(ToDoChangeEvent.updated(done));
+
+        assertThat(index.upcoming("anna", Duration.ofDays(1), 10)).isEmpty();
+    }
+
+    /**
+     * Testet, ob PATCH-Events mit done oder Termin ohne SELECT auskommen, solange der Index genug weiß,
+     * und nur ein wieder geöffneter, unbekannter Eintrag nachgeladen wird.
+     */
+    @Test
+    void onChange_patch_reloadsOnlyWhenDueTimeIsUnknown() {
+        index.repo = mock(ToDoEntryRepository.class);
+        ToDoEntry reopened = new ToDoEntry("Steuer", null, now.plusHours(5), false);
+        reopened.setId(5L);
+        when(index.repo.findById(5L)).thenReturn(Optional.of(reopened));
+
+        index.onChange(ToDoChangeEvent.patched("anna", 2L, new ToDoPatch(null, null, null, true), 7));
+        index.onChange(ToDoChangeEvent.patched("anna", 3L, new ToDoPatch(null, null, now.plusHours(1), null), 8));
+        index.onChange(ToDoChangeEvent.patched("anna", 3L, new ToDoPatch(null, null, null, false), 9));
+        index.onChange(ToDoChangeEvent.patched("anna", 5L, new ToDoPatch(null, null, null, false), 10));
+
+        assertThat(index.upcoming("anna", Duration.ofDays(1), 10)).containsExactly(3L, 5L);
+        verify(index.repo, only()).findById(5L);
+    }
+
+    /**
+     * Testet, ob beim ersten Laden schon Überfälliges nicht erneut gemeldet wird,
+     * nachgeladene erreichte Termine aber genau einmal.
+     */
+    @Test
+    void tick_publishesReachedDueTimesOnce() {
+        index.tick();
+        verify(index.events, never()).publishEvent(any(Object.class));
+
+        index.load(Stream.<Object[]>of(new Object[]{5L, "anna", now.minusMinutes(1)}), now.plusDays(7));
+        index.tick();
+        index.tick();
+
+        verify(index.events, times(1)).publishEvent(new ToDoDueEvent("anna", 5L, now.minusMinutes(1)));
+    }
+
+    /**
+     * Testet, ob ein Zeitraum über den Horizont hinaus abgelehnt wird.
+     */
+    @Test
+    void upcoming_rejectsWindowBeyondHorizon() {
+        assertThatThrownBy(() -> index.upcoming("anna", Duration.ofDays(30), 10))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
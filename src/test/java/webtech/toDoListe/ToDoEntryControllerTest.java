@@ -2,15 +2,23 @@ package webtech.toDoListe;
 
 import org.junit.jupiter.api.Test;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.data.domain.Sort;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.context.annotation.Import;
 import org.springframework.test.context.bean.override.mockito.MockitoBean;
 import org.springframework.http.MediaType;
 import org.springframework.test.web.servlet.MockMvc;
 
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.Map;
 
+import static org.hamcrest.Matchers.not;
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.Mockito.*;
 import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.*;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.*;
@@ -21,6 +29,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
  * und MockMvc, um HTTP-Anfragen und -Antworten zu simulieren.
  */
 @WebMvcTest(ToDoEntryController.class)
+@Import(ToDoIdempotencyStore.class) // echter Store, damit Wiederholungen wirklich aus ihm beantwortet werden
 class ToDoEntryControllerTest {
 
     @Autowired
@@ -29,6 +38,12 @@ class ToDoEntryControllerTest {
     @MockitoBean
     ToDoEntryService service; // Gemockter Service als Abhängigkeit
 
+    @MockitoBean
+    ToDoImporter importer;
+
+    // der AuthTokenFilter gehört nicht zum WebMvcTest, der Benutzer wird direkt als Request-Attribut gesetzt
+    private static final String USER = "testuser";
+
     /**
      * Erstellt ein gültiges ToDoEntry-Objekt mit den angegebenen Parametern.
      *
@@ -68,29 +83,152 @@ class ToDoEntryControllerTest {
      */
     @Test
     void getAllTodos_returnsList() throws Exception {
-        when(service.getAll()).thenReturn(List.of(validTodo(1L)));
+        when(service.getAll(USER)).thenReturn(List.of(validTodo(1L)));
 
-        mvc.perform(get("/todos"))
+        mvc.perform(get("/todos").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER))
                 .andExpect(status().isOk())
                 .andExpect(content().contentTypeCompatibleWith(MediaType.APPLICATION_JSON))
                 .andExpect(jsonPath("$[0].id").value(1))
                 .andExpect(jsonPath("$[0].name").value("TestTask"));
     }
 
+    /**
+     * Testet, ob der Endpunkt getTodoPage die Filter- und Cursor-Parameter an den Service
+     * weiterreicht und Einträge samt nächstem Cursor zurückgibt.
+     */
+    @Test
+    void getTodoPage_passesParametersAndReturnsCursor() throws Exception {
+        when(service.getPage(eq(USER), eq(false), isNull(), isNull(), eq("id"), eq(Sort.Direction.ASC), eq("abc"), eq(20)))
+                .thenReturn(new ToDoPage(List.of(validTodo(3L)), "next"));
+
+        mvc.perform(get("/todos/page").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .param("done", "false")
+                        .param("cursor", "abc")
+                        .param("size", "20"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.items[0].id").value(3))
+                .andExpect(jsonPath("$.nextCursor").value("next"));
+    }
+
     /**
      * Testet, ob der Endpunkt getTodo eine spezifische ToDo-Eintragung
      * anhand der ID mit dem korrekten HTTP-Status und JSON-Format zurückgibt.
      */
     @Test
     void getTodo_byId_returnsEntry() throws Exception {
-        when(service.get(5L)).thenReturn(validTodo(5L));
+        when(service.get(USER, 5L)).thenReturn(validTodo(5L));
 
-        mvc.perform(get("/todos/5"))
+        mvc.perform(get("/todos/5").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER))
                 .andExpect(status().isOk())
                 .andExpect(jsonPath("$.id").value(5))
                 .andExpect(jsonPath("$.name").value("TestTask"));
     }
 
+    /**
+     * Testet, ob GET /todos mit fields= die Projektion des Services liefert
+     * und mit view=summary die Listenansicht ohne Beschreibung.
+     */
+    @Test
+    void getAllTodos_withFieldsOrSummary_usesProjections() throws Exception {
+        when(service.getFields(USER, List.of("id", "done"))).thenReturn(List.of(Map.of("id", 1, "done", true)));
+        when(service.getSummaries(USER))
+                .thenReturn(List.of(new ToDoSummary(1L, "TestTask", null, false, 0L)));
+
+        mvc.perform(get("/todos").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .param("fields", "id,done"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].done").value(true))
+                .andExpect(jsonPath("$[0].name").doesNotExist());
+
+        mvc.perform(get("/todos").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .param("view", "summary"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].name").value("TestTask"))
+                .andExpect(jsonPath("$[0].description").doesNotExist());
+
+        verify(service, never()).getAll(any());
+    }
+
+    /**
+     * Testet, ob GET /todos mit tag= nach allen Tags filtert und /todos/tags die Zähler liefert.
+     */
+    @Test
+    void getTodosByTag_andTagCounts() throws Exception {
+        ToDoEntry tagged = validTodo(5L);
+        tagged.setTags(List.of("Arbeit", "dringend"));
+        when(service.getByTags(USER, List.of("arbeit", "dringend"))).thenReturn(List.of(tagged));
+        when(service.getTagCounts(USER)).thenReturn(List.of(new ToDoTagCount("arbeit", 3L, 1L)));
+
+        mvc.perform(get("/todos").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .param("tag", "arbeit", "dringend"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(5))
+                .andExpect(jsonPath("$[0].tags[0]").value("arbeit"));
+
+        mvc.perform(get("/todos/tags").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].tag").value("arbeit"))
+                .andExpect(jsonPath("$[0].open").value(3))
+                .andExpect(jsonPath("$[0].done").value(1));
+
+        verify(service, never()).getAll(any());
+    }
+
+    /**
+     * Testet, ob der Import das Format aus dem Content-Type ableitet und das Ergebnis zurückgibt.
+     */
+    @Test
+    void importTodos_detectsFormatFromContentType() throws Exception {
+        when(importer.importEntries(eq(USER), eq(ToDoImporter.Format.CSV), any()))
+                .thenReturn(new ToDoImporter.Result(2, 1, Map.of("[3].name", "Name darf nicht leer sein")));
+
+        mvc.perform(post("/todos/import").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .contentType("text/csv")
+                        .content("name\nEinkaufen\nPutzen\n\"\"\n"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$.imported").value(2))
+                .andExpect(jsonPath("$.rejected").value(1))
+                .andExpect(jsonPath("$.errors['[3].name']").value("Name darf nicht leer sein"));
+
+        mvc.perform(post("/todos/import").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[]"))
+                .andExpect(status().isUnsupportedMediaType());
+    }
+
+    /**
+     * Testet, ob die Suche Suchbegriff und Limit an den Service weitergibt
+     * und die Treffer in dessen Reihenfolge zurückgibt.
+     */
+    @Test
+    void searchTodos_returnsRankedHits() throws Exception {
+        when(service.search(USER, "einka", 5)).thenReturn(List.of(validTodo(3L), validTodo(1L)));
+
+        mvc.perform(get("/todos/search").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .param("q", "einka")
+                        .param("limit", "5"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(3))
+                .andExpect(jsonPath("$[1].id").value(1));
+    }
+
+    /**
+     * Testet, ob upcoming die Dauer als ISO-8601 annimmt und eine ungültige Dauer mit 400 ablehnt.
+     */
+    @Test
+    void getUpcomingTodos_parsesWithin() throws Exception {
+        when(service.getUpcoming(USER, Duration.ofHours(6), 50)).thenReturn(List.of(validTodo(2L)));
+
+        mvc.perform(get("/todos/upcoming").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .param("within", "PT6H"))
+                .andExpect(status().isOk())
+                .andExpect(jsonPath("$[0].id").value(2));
+
+        mvc.perform(get("/todos/upcoming").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .param("within", "morgen"))
+                .andExpect(status().isBadRequest());
+    }
+
     /**
      * Testet, ob der Endpunkt createTodo den Service aufruft, um ein neues
      * ToDo-Objekt zu speichern, und das erstellte Objekt mit dem korrekten
@@ -98,9 +236,9 @@ class ToDoEntryControllerTest {
      */
     @Test
     void createTodo_callsServiceAndReturnsCreatedObject() throws Exception {
-        when(service.save(any(ToDoEntry.class))).thenReturn(validTodo(10L));
+        when(service.save(eq(USER), any(ToDoEntry.class))).thenReturn(validTodo(10L));
 
-        mvc.perform(post("/todos")
+        mvc.perform(post("/todos").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
                         .contentType(MediaType.APPLICATION_JSON)
                         .content(validTodoJson()))
                 .andExpect(status().isCreated())
@@ -108,17 +246,213 @@ class ToDoEntryControllerTest {
                 .andExpect(jsonPath("$.name").value("TestTask"));
     }
 
+    /**
+     * Testet, ob eine Wiederholung mit demselben Idempotency-Key die erste Antwort bekommt, ohne erneut
+     * zu speichern, und derselbe Schlüssel mit anderem Body als 422 abgelehnt wird.
+     */
+    @Test
+    void createTodo_withIdempotencyKey_replaysFirstResponse() throws Exception {
+        when(service.save(eq(USER), any(ToDoEntry.class))).thenReturn(validTodo(10L));
+        String body = validTodoJson();
+
+        mvc.perform(post("/todos").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .header(ToDoIdempotencyStore.HEADER, "a1b2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(ToDoIdempotencyStore.REPLAYED_HEADER, "false"));
+        mvc.perform(post("/todos").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .header(ToDoIdempotencyStore.HEADER, "a1b2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body))
+                .andExpect(status().isCreated())
+                .andExpect(header().string(ToDoIdempotencyStore.REPLAYED_HEADER, "true"))
+                .andExpect(jsonPath("$.id").value(10));
+        mvc.perform(post("/todos").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .header(ToDoIdempotencyStore.HEADER, "a1b2")
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(body.replace("TestTask", "AndereAufgabe")))
+                .andExpect(status().isUnprocessableEntity())
+                .andExpect(jsonPath("$.type").value("/problems/idempotency-key-reused"));
+
+        verify(service, times(1)).save(eq(USER), any(ToDoEntry.class));
+    }
+
+    /**
+     * Testet, ob der Endpunkt createTodos alle Einträge in einem Aufruf an den Service
+     * übergibt und die gespeicherten Objekte mit Status 201 zurückgibt.
+     */
+    @Test
+    void createTodos_batch_returnsCreatedList() throws Exception {
+        when(service.saveAll(eq(USER), anyList())).thenReturn(List.of(validTodo(1L), validTodo(2L)));
+
+        mvc.perform(post("/todos/batch").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + validTodoJson() + "," + validTodoJson() + "]"))
+                .andExpect(status().isCreated())
+                .andExpect(jsonPath("$[1].id").value(2));
+
+        verify(service, times(1)).saveAll(eq(USER), anyList());
+    }
+
+    /**
+     * Testet, ob ein ungültiger Eintrag im Batch mit 400 und dem Index des
+     * fehlerhaften Eintrags abgelehnt wird, ohne dass der Service aufgerufen wird.
+     */
+    @Test
+    void createTodos_batch_rejectsInvalidEntry() throws Exception {
+        mvc.perform(post("/todos/batch").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("[" + validTodoJson() + ", {\"name\": \"x\"}]"))
+                .andExpect(status().isBadRequest())
+                .andExpect(jsonPath("$['[1].name']").exists());
+
+        verify(service, never()).saveAll(any(), anyList());
+    }
+
+    /**
+     * Testet, ob der Endpunkt patchTodo nur die gesendeten Felder an den Service
+     * weitergibt und mit 204 antwortet.
+     */
+    @Test
+    void patchTodo_passesOnlyChangedFields() throws Exception {
+        mvc.perform(patch("/todos/4").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"done\": true}"))
+                .andExpect(status().isNoContent());
+
+        verify(service).patch(USER, 4L, new ToDoPatch(null, null, null, true), null);
+    }
+
+    /**
+     * Testet, ob ungültige Tags im PATCH mit 400 abgelehnt werden.
+     */
+    @Test
+    void patchTodo_rejectsInvalidTag() throws Exception {
+        mvc.perform(patch("/todos/4").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"tags\": [\"zwei worte\"]}"))
+                .andExpect(status().isBadRequest());
+
+        verify(service, never()).patch(any(), any(), any(), any());
+    }
+
+    /**
+     * Testet, ob ein reines done-PATCH mit 202 beantwortet wird, wenn der Service es
+     * im Write-Behind angenommen hat, und dann kein synchrones Update stattfindet.
+     */
+    @Test
+    void patchTodo_returns202_whenDeferred() throws Exception {
+        when(service.patchDeferred(USER, 4L, new ToDoPatch(null, null, null, true))).thenReturn(true);
+
+        mvc.perform(patch("/todos/4").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content("{\"done\": true}"))
+                .andExpect(status().isAccepted());
+
+        verify(service, never()).patch(any(), any(), any(), any());
+    }
+
     /**
      * Testet, ob der Endpunkt deleteTodo den Service aufruft, um ein ToDo-Objekt
      * anhand der ID zu löschen, und den HTTP-Status 204 No Content zurückgibt.
      */
     @Test
     void deleteTodo_returns204() throws Exception {
-        doNothing().when(service).delete(7L);
+        doNothing().when(service).delete(USER, 7L, null);
 
-        mvc.perform(delete("/todos/7"))
+        mvc.perform(delete("/todos/7").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER))
                 .andExpect(status().isNoContent());
 
-        verify(service, times(1)).delete(7L);
+        verify(service, times(1)).delete(USER, 7L, null);
+    }
+
+    /**
+     * Testet, ob getTodo die Version als ETag liefert und bei passendem
+     * If-None-Match mit 304 ohne Body antwortet.
+     */
+    @Test
+    void getTodo_returns304_whenETagMatches() throws Exception {
+        ToDoEntry todo = validTodo(5L);
+        todo.setVersion(2L);
+        when(service.get(USER, 5L)).thenReturn(todo);
+
+        mvc.perform(get("/todos/5").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER))
+                .andExpect(status().isOk())
+                .andExpect(header().string("ETag", "\"2\""));
+
+        mvc.perform(get("/todos/5").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER).header("If-None-Match", "\"2\""))
+                .andExpect(status().isNotModified())
+                .andExpect(content().string(""));
+    }
+
+    /**
+     * Testet, ob getTodo bei einer ausstehenden done-Umschaltung kein ETag liefert,
+     * damit ein If-None-Match mit der alten Version nicht den veralteten Stand bestätigt.
+     */
+    @Test
+    void getTodo_omitsETag_whenDoneIsPending() throws Exception {
+        ToDoEntry todo = validTodo(5L);
+        todo.setVersion(2L);
+        todo.setDone(true);
+        todo.setDonePending(true);
+        when(service.get(USER, 5L)).thenReturn(todo);
+
+        mvc.perform(get("/todos/5").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER).header("If-None-Match", "\"2\""))
+                .andExpect(status().isOk())
+                .andExpect(header().doesNotExist("ETag"))
+                .andExpect(jsonPath("$.done").value(true));
+    }
+
+    /**
+     * Testet, ob deleteTodo die Version aus If-Match an den Service weitergibt
+     * und eine nicht passende Version mit 412 beantwortet wird.
+     */
+    @Test
+    void deleteTodo_returns412_whenIfMatchIsStale() throws Exception {
+        doThrow(new PreconditionFailedException("ToDo mit ID 7 wurde zwischenzeitlich geändert"))
+                .when(service).delete(USER, 7L, 1L);
+
+        mvc.perform(delete("/todos/7").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER).header("If-Match", "\"1\""))
+                .andExpect(status().isPreconditionFailed());
+    }
+
+    /**
+     * Testet, ob Fehler als Problem Details mit passendem Status beantwortet werden:
+     * unbekannte ID 404, ungültige ID 400, unerwarteter Fehler 500 (ohne interne Meldung),
+     * falsche Methode 405 und falscher Content-Type 415 aus Spring MVC.
+     */
+    @Test
+    void errors_areMappedToProblemDetails() throws Exception {
+        when(service.get(USER, 99L)).thenThrow(new ToDoNotFoundException(99L));
+        when(service.get(USER, 98L)).thenThrow(new IllegalStateException("Verbindung verloren"));
+
+        mvc.perform(get("/todos/99").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER))
+                .andExpect(status().isNotFound())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.status").value(404))
+                .andExpect(jsonPath("$.type").value("/problems/not-found"))
+                .andExpect(jsonPath("$.message").value("ToDo mit ID 99 nicht gefunden"));
+
+        mvc.perform(put("/todos/abc").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .content(validTodoJson()))
+                .andExpect(status().isBadRequest());
+
+        mvc.perform(get("/todos/98").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER))
+                .andExpect(status().isInternalServerError())
+                .andExpect(jsonPath("$.message").value(not("Verbindung verloren")));
+
+        // Fehler aus Spring MVC selbst kommen ebenfalls als Problem Details
+        mvc.perform(post("/todos/tags").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER))
+                .andExpect(status().isMethodNotAllowed())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON))
+                .andExpect(jsonPath("$.status").value(405));
+
+        mvc.perform(post("/todos").requestAttr(AuthTokenFilter.USER_ATTRIBUTE, USER)
+                        .contentType(MediaType.TEXT_PLAIN)
+                        .content("Einkaufen"))
+                .andExpect(status().isUnsupportedMediaType())
+                .andExpect(content().contentType(MediaType.APPLICATION_PROBLEM_JSON));
     }
-}
\ No newline at end of file
+}
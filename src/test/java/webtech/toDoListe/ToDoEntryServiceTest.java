@@ -5,14 +5,20 @@ package webtech.toDoListe;
         import org.mockito.ArgumentCaptor;
         import org.mockito.InjectMocks;
         import org.mockito.Mock;
+        import org.mockito.Spy;
         import org.mockito.junit.jupiter.MockitoExtension;
+        import org.springframework.context.ApplicationEventPublisher;
 
+        import java.time.Duration;
         import java.time.LocalDateTime;
         import java.util.List;
         import java.util.Optional;
 
         import static org.assertj.core.api.Assertions.*;
         import static org.mockito.ArgumentMatchers.any;
+        import static org.mockito.ArgumentMatchers.anyBoolean;
+        import static org.mockito.ArgumentMatchers.anyList;
+        import static org.mockito.ArgumentMatchers.eq;
         import static org.mockito.Mockito.*;
 
         /**
@@ -24,9 +30,26 @@ package webtech.toDoListe;
             @Mock
             ToDoEntryRepository repo; // Mock-Repository für ToDoEntry
 
+            @Mock
+            ChangeSequence changeSequence; // liefert im Test immer 0
+
+            @Mock
+            ToDoTombstoneRepository tombstones;
+
+            @Mock
+            ApplicationEventPublisher events;
+
+            @Mock
+            ToDoWriteBehind writeBehind; // ausgeschaltet, nichts ausstehend
+
+            @Spy
+            ToDoEntryCache cache = new ToDoEntryCache(100, Duration.ofMinutes(10), true); // echter Cache mit Snapshot
+
             @InjectMocks
             ToDoEntryService service; // Zu testender Service
 
+            private static final String USER = "testuser"; // angemeldeter Benutzer
+
             /**
              * Erstellt ein gültiges ToDoEntry-Objekt mit den angegebenen Parametern.
              *
@@ -42,6 +65,7 @@ package webtech.toDoListe;
                         done
                 );
                 todo.setId(id);
+                todo.setOwner(USER);
                 return todo;
             }
 
@@ -55,12 +79,13 @@ package webtech.toDoListe;
 
                 when(repo.save(any(ToDoEntry.class))).thenAnswer(inv -> inv.getArgument(0));
 
-                ToDoEntry saved = service.save(entry);
+                ToDoEntry saved = service.save(USER, entry);
 
                 ArgumentCaptor<ToDoEntry> captor = ArgumentCaptor.forClass(ToDoEntry.class);
                 verify(repo).save(captor.capture());
 
                 assertThat(captor.getValue().getId()).isNull(); // Service setzt ID auf null
+                assertThat(captor.getValue().getOwner()).isEqualTo(USER); // Besitzer kommt aus dem Token
                 assertThat(saved.getName()).isEqualTo("TestTask");
                 assertThat(saved.isDone()).isFalse();
             }
@@ -74,22 +99,37 @@ package webtech.toDoListe;
                 ToDoEntry entry = validTodo(1L, false);
                 when(repo.findById(1L)).thenReturn(Optional.of(entry));
 
-                ToDoEntry result = service.get(1L);
+                ToDoEntry result = service.get(USER, 1L);
 
                 assertThat(result.getId()).isEqualTo(1L);
                 assertThat(result.getName()).isEqualTo("TestTask");
             }
 
             /**
-             * Testet, ob die Methode get eine RuntimeException wirft,
+             * Testet, ob die Methode get eine ToDoNotFoundException (ohne Stacktrace) wirft,
              * wenn das Repository keinen Eintrag für die angegebene ID findet.
              */
             @Test
             void get_throws_whenNotFound() {
                 when(repo.findById(123L)).thenReturn(Optional.empty());
 
-                assertThatThrownBy(() -> service.get(123L))
-                        .isInstanceOf(RuntimeException.class);
+                assertThatThrownBy(() -> service.get(USER, 123L))
+                        .isInstanceOf(ToDoNotFoundException.class)
+                        .satisfies(e -> assertThat(e.getStackTrace()).isEmpty());
+            }
+
+            /**
+             * Testet, ob ein Eintrag eines anderen Benutzers wie ein nicht vorhandener behandelt wird.
+             */
+            @Test
+            void get_throws_whenEntryBelongsToOtherUser() {
+                ToDoEntry foreign = validTodo(8L, false);
+                foreign.setOwner("andererBenutzer");
+                when(repo.findById(8L)).thenReturn(Optional.of(foreign));
+
+                assertThatThrownBy(() -> service.get(USER, 8L))
+                        .isInstanceOf(RuntimeException.class)
+                        .hasMessageContaining("8");
             }
 
             /**
@@ -101,9 +141,9 @@ package webtech.toDoListe;
                 ToDoEntry a = validTodo(1L, false);
                 ToDoEntry b = validTodo(2L, true);
 
-                when(repo.findAll()).thenReturn(List.of(a, b));
+                when(repo.findByOwnerOrderById(USER)).thenReturn(List.of(a, b));
 
-                List<ToDoEntry> all = service.getAll();
+                List<ToDoEntry> all = service.getAll(USER);
 
                 assertThat(all).hasSize(2);
                 assertThat(all.get(0).getId()).isEqualTo(1L);
@@ -111,62 +151,209 @@ package webtech.toDoListe;
             }
 
             /**
-             * Testet, ob die Methode delete die Repository-Methode deleteById
-             * mit der erwarteten ID aufruft, wenn der Eintrag existiert.
+             * Testet, ob die Methode delete genau ein DELETE-Statement absetzt
+             * und vorher kein existsById mehr braucht.
              */
             @Test
-            void delete_callsRepoDeleteById_whenExists() {
-                when(repo.existsById(7L)).thenReturn(true);
+            void delete_issuesSingleStatement_whenExists() {
+                when(repo.deleteEntryById(USER, 7L)).thenReturn(1);
 
-                service.delete(7L);
+                service.delete(USER, 7L, null);
 
-                verify(repo).deleteById(7L);
+                verify(repo).deleteEntryById(USER, 7L);
+                verify(tombstones).save(any(ToDoTombstone.class));
+                verify(events).publishEvent(ToDoChangeEvent.deleted(USER, 7L, 0L));
+                verify(repo, never()).existsByIdAndOwner(anyLong(), any());
             }
 
             /**
              * Testet, ob die Methode delete eine RuntimeException wirft,
-             * wenn der Eintrag mit der angegebenen ID nicht existiert.
+             * wenn das DELETE keine Zeile betroffen hat.
              */
             @Test
             void delete_throws_whenNotFound() {
-                when(repo.existsById(7L)).thenReturn(false);
+                when(repo.deleteEntryById(USER, 7L)).thenReturn(0);
 
-                assertThatThrownBy(() -> service.delete(7L))
+                assertThatThrownBy(() -> service.delete(USER, 7L, null))
                         .isInstanceOf(RuntimeException.class)
                         .hasMessageContaining("7");
-
-                verify(repo, never()).deleteById(anyLong());
             }
 
             /**
-             * Testet, ob die Methode update einen bestehenden Eintrag aktualisiert
-             * und das aktualisierte Objekt speichert.
+             * Testet, ob die Methode delete eine PreconditionFailedException wirft,
+             * wenn der Eintrag existiert, aber die per If-Match erwartete Version nicht mehr passt.
              */
             @Test
-            void update_updatesExistingEntityAndSaves() {
-                ToDoEntry existing = validTodo(10L, false);
-                when(repo.findById(10L)).thenReturn(Optional.of(existing));
-                when(repo.save(any(ToDoEntry.class))).thenAnswer(inv -> inv.getArgument(0));
+            void delete_throwsPreconditionFailed_whenVersionDiffers() {
+                when(repo.deleteEntryByIdAndVersion(USER, 7L, 3L)).thenReturn(0);
+                when(repo.existsByIdAndOwner(7L, USER)).thenReturn(true);
 
+                assertThatThrownBy(() -> service.delete(USER, 7L, 3L))
+                        .isInstanceOf(PreconditionFailedException.class);
+            }
+
+            /**
+             * Testet, ob die Methode update die Felder mit einem einzigen UPDATE schreibt,
+             * ohne den Eintrag vorher zu laden, und den Eintrag mit ID zurückgibt.
+             */
+            @Test
+            void update_writesFieldsWithSingleStatement() {
                 ToDoEntry updated = new ToDoEntry(
                         "UpdatedTask",
                         "Neu",
                         LocalDateTime.now().plusDays(2),
                         true
                 );
+                when(repo.updateFields(USER, 10L, "UpdatedTask", "Neu", updated.getDueTime(), true, 0L)).thenReturn(1);
+                when(repo.findVersionById(10L)).thenReturn(4L);
 
-                ToDoEntry result = service.update(10L, updated);
+                ToDoEntry result = service.update(USER, 10L, updated, null);
 
-                ArgumentCaptor<ToDoEntry> captor = ArgumentCaptor.forClass(ToDoEntry.class);
-                verify(repo).save(captor.capture());
+                verify(repo, never()).findById(anyLong());
+                verify(repo, never()).save(any(ToDoEntry.class));
+                assertThat(result.getId()).isEqualTo(10L);
+                assertThat(result.getName()).isEqualTo("UpdatedTask");
+                assertThat(result.isDone()).isTrue();
+                assertThat(result.getVersion()).isEqualTo(4L);
+            }
 
-                ToDoEntry saved = captor.getValue();
-                assertThat(saved.getId()).isEqualTo(10L);
-                assertThat(saved.getName()).isEqualTo("UpdatedTask");
-                assertThat(saved.getDescription()).isEqualTo("Neu");
-                assertThat(saved.getDueTime()).isEqualTo(updated.getDueTime());
-                assertThat(saved.isDone()).isTrue();
+            /**
+             * Testet, ob update mitgeschickte Tags ersetzt und ohne Tags die gespeicherten übernimmt.
+             */
+            @Test
+            void update_replacesTagsOnlyWhenSent() {
+                ToDoEntry withTags = validTodo(null, false);
+                withTags.setTags(List.of("Arbeit", "privat"));
+                when(repo.updateFields(eq(USER), eq(10L), any(), any(), any(), anyBoolean(), anyLong())).thenReturn(1);
+                when(repo.findTagsById(10L)).thenReturn(List.of("arbeit"));
+
+                ToDoEntry result = service.update(USER, 10L, withTags, null);
+
+                verify(repo).deleteTags(10L);
+                verify(repo).insertTag(10L, "arbeit");
+                verify(repo).insertTag(10L, "privat");
+                assertThat(result.getTags()).containsExactly("arbeit", "privat");
+
+                ToDoEntry withoutTags = validTodo(null, false);
+                assertThat(service.update(USER, 10L, withoutTags, null).getTags()).containsExactly("arbeit");
+                verify(repo, times(1)).deleteTags(10L);
+            }
 
-                assertThat(result.getName()).isEqualTo("UpdatedTask");
+            /**
+             * Testet, ob die Methode update mit If-Match-Version das bedingte UPDATE nutzt
+             * und die neue Version ohne weiteres SELECT berechnet.
+             */
+            @Test
+            void update_withExpectedVersion_usesConditionalUpdate() {
+                ToDoEntry updated = validTodo(null, true);
+                when(repo.updateFieldsIfVersion(USER, 10L, 2L, "TestTask", "Beschreibung", updated.getDueTime(), true, 0L))
+                        .thenReturn(1);
+
+                ToDoEntry result = service.update(USER, 10L, updated, 2L);
+
+                verify(repo, never()).findVersionById(anyLong());
+                assertThat(result.getVersion()).isEqualTo(3L);
+            }
+
+            /**
+             * Testet, ob die Methode update eine RuntimeException wirft,
+             * wenn das UPDATE keine Zeile betroffen hat.
+             */
+            @Test
+            void update_throws_whenNotFound() {
+                when(repo.updateFields(eq(USER), eq(10L), any(), any(), any(), anyBoolean(), anyLong())).thenReturn(0);
+
+                assertThatThrownBy(() -> service.update(USER, 10L, validTodo(null, false), null))
+                        .isInstanceOf(RuntimeException.class)
+                        .hasMessageContaining("10");
+            }
+
+            /**
+             * Testet, ob die Methode saveAll die IDs aller Einträge auf null setzt
+             * und das Repository nur einmal für die ganze Liste aufruft.
+             */
+            @Test
+            void saveAll_setsIdsNullAndSavesInOneCall() {
+                List<ToDoEntry> entries = List.of(validTodo(1L, false), validTodo(2L, false));
+                when(repo.saveAll(anyList())).thenAnswer(inv -> inv.getArgument(0));
+
+                List<ToDoEntry> saved = service.saveAll(USER, entries);
+
+                verify(repo, times(1)).saveAll(anyList());
+                assertThat(saved).hasSize(2).allSatisfy(e -> assertThat(e.getId()).isNull());
+            }
+
+            /**
+             * Testet, ob die Methode updateAll eine RuntimeException mit der fehlenden ID wirft,
+             * wenn nicht alle Einträge gefunden werden.
+             */
+            @Test
+            void updateAll_throws_whenEntryMissing() {
+                when(repo.findAllById(any())).thenReturn(List.of(validTodo(1L, false)));
+
+                assertThatThrownBy(() -> service.updateAll(USER, List.of(validTodo(1L, true), validTodo(2L, true))))
+                        .isInstanceOf(RuntimeException.class)
+                        .hasMessageContaining("2");
+            }
+        
+            /**
+             * Testet, ob wiederholte Aufrufe von get nur beim ersten Mal das Repository treffen.
+             */
+            @Test
+            void get_usesCache_onRepeatedReads() {
+                when(repo.findById(1L)).thenReturn(Optional.of(validTodo(1L, false)));
+
+                service.get(USER, 1L);
+                service.get(USER, 1L);
+
+                verify(repo, times(1)).findById(1L);
+            }
+
+            /**
+             * Testet, ob der Listen-Snapshot nach einem Löschen ohne erneutes findAll
+             * nur um den gelöschten Eintrag verkleinert wird.
+             */
+            @Test
+            void getAll_snapshotFollowsDeleteWithoutReload() {
+                when(repo.findByOwnerOrderById(USER)).thenReturn(List.of(validTodo(1L, false), validTodo(2L, false)));
+                when(repo.deleteEntryById(USER, 1L)).thenReturn(1);
+
+                service.getAll(USER);
+                service.delete(USER, 1L, null);
+                List<ToDoEntry> all = service.getAll(USER);
+
+                verify(repo, times(1)).findByOwnerOrderById(USER);
+                assertThat(all).extracting(ToDoEntry::getId).containsExactly(2L);
+            }
+        
+            /**
+             * Testet, ob getChanges nur bis zur vorher gelesenen Änderungsnummer liest
+             * und diese als neue highWaterMark zurückgibt.
+             */
+            @Test
+            void getChanges_returnsUpsertsAndDeletesUpToHighWaterMark() {
+                when(changeSequence.current(USER)).thenReturn(12L);
+                when(repo.findChanges(USER, 10L, 12L)).thenReturn(List.of(validTodo(3L, false)));
+                when(tombstones.findDeletedIds(USER, 10L, 12L)).thenReturn(List.of(4L));
+
+                ToDoChanges changes = service.getChanges(USER, 10L);
+
+                assertThat(changes.upserts()).extracting(ToDoEntry::getId).containsExactly(3L);
+                assertThat(changes.deletedIds()).containsExactly(4L);
+                assertThat(changes.highWaterMark()).isEqualTo(12L);
+            }
+
+            /**
+             * Testet, ob getChanges ohne neue Änderungen keine Abfrage auf die Einträge macht.
+             */
+            @Test
+            void getChanges_skipsQueries_whenNothingChanged() {
+                when(changeSequence.current(USER)).thenReturn(12L);
+
+                ToDoChanges changes = service.getChanges(USER, 12L);
+
+                assertThat(changes.upserts()).isEmpty();
+                assertThat(changes.highWaterMark()).isEqualTo(12L);
+                verify(repo, never()).findChanges(any(), anyLong(), anyLong());
             }
         }
\ No newline at end of file
@@ -0,0 +1,93 @@
+package webtech.toDoListe;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit-Tests für {@link ToDoIdempotencyStore} (ohne Spring Context).
+ */
+class ToDoIdempotencyStoreTest {
+
+    ToDoIdempotencyStore store = new ToDoIdempotencyStore(100, Duration.ofHours(1));
+
+    LocalDateTime due = LocalDateTime.now().plusDays(1);
+
+    /**
+     * Testet, ob gleichzeitig ankommende Duplikate genau einmal speichern und alle dasselbe Ergebnis bekommen.
+     */
+    @Test
+    void create_runsOnce_forConcurrentDuplicates() throws Exception {
+        AtomicInteger saves = new AtomicInteger();
+        CountDownLatch start = new CountDownLatch(1);
+        List<Future<ToDoIdempotencyStore.Result>> results = new ArrayList<>();
+        try (ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < 20; i++) {
+                results.add(executor.submit(() -> {
+                    start.await();
+                    return store.create("anna", "k1", request("Einkaufen"), () -> {
+                        saves.incrementAndGet();
+                        ToDoEntry saved = request("Einkaufen");
+                        saved.setId(42L);
+                        return saved;
+                    });
+                }));
+            }
+            start.countDown();
+            int first = 0;
+            for (Future<ToDoIdempotencyStore.Result> result : results) {
+                assertThat(result.get().entry().getId()).isEqualTo(42L);
+                first += result.get().replayed() ? 0 : 1;
+            }
+            assertThat(first).isEqualTo(1);
+        }
+        assertThat(saves).hasValue(1);
+    }
+
+    /**
+     * Testet, ob derselbe Schlüssel mit anderem Body abgelehnt wird und Schlüssel je Benutzer getrennt sind.
+     */
+    @Test
+    void create_rejectsDifferentBody_andSeparatesOwners() {
+        store.create("anna", "k1", request("Einkaufen"), () -> saved(1L));
+
+        assertThatThrownBy(() -> store.create("anna", "k1", request("Putzen"), () -> saved(2L)))
+                .isInstanceOf(IdempotencyKeyReusedException.class);
+        assertThat(store.create("ben", "k1", request("Putzen"), () -> saved(3L)).entry().getId()).isEqualTo(3L);
+    }
+
+    /**
+     * Testet, ob ein gescheiterter erster Versuch den Schlüssel wieder freigibt.
+     */
+    @Test
+    void create_releasesKey_whenFirstAttemptFails() {
+        assertThatThrownBy(() -> store.create("anna", "k1", request("Einkaufen"), () -> {
+            throw new IllegalStateException("DB weg");
+        })).isInstanceOf(IllegalStateException.class);
+
+        ToDoIdempotencyStore.Result retry = store.create("anna", "k1", request("Einkaufen"), () -> saved(5L));
+
+        assertThat(retry.replayed()).isFalse();
+        assertThat(retry.entry().getId()).isEqualTo(5L);
+    }
+
+    private ToDoEntry request(String name) {
+        return new ToDoEntry(name, null, due, false);
+    }
+
+    private ToDoEntry saved(Long id) {
+        ToDoEntry entry = request("Einkaufen");
+        entry.setId(id);
+        return entry;
+    }
+}
@@ -0,0 +1,120 @@
+package webtech.toDoListe;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.validation.Validation;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für {@link ToDoImporter} (echter Validator, gemockter Service, ohne Spring Context).
+ */
+class ToDoImporterTest {
+
+    ToDoImporter importer = new ToDoImporter();
+
+    String future = LocalDateTime.now().plusDays(3).withNano(0).toString();
+
+    @BeforeEach
+    void setUp() {
+        importer.service = mock(ToDoEntryService.class);
+        importer.objectMapper = new ObjectMapper().findAndRegisterModules();
+        importer.validator = Validation.buildDefaultValidatorFactory().getValidator();
+        when(importer.service.saveAll(eq("anna"), anyList())).thenAnswer(inv -> new ArrayList<>(inv.<List<?>>getArgument(1)));
+    }
+
+    /**
+     * Testet, ob CSV mit Anführungszeichen, Zeilenumbrüchen im Feld und Tags gelesen wird
+     * und ungültige Zeilen mit ihrer Zeilennummer gemeldet, gültige aber gespeichert werden.
+     */
+    @Test
+    void importCsv_savesValidRowsAndReportsInvalidOnes() throws Exception {
+        String csv = "name,description,dueTime,done,tags\r\n"
+                + "Einkaufen,\"Milch, Brot\nund \"\"Käse\"\"\"," + future + ",false,Privat dringend\r\n"
+                + "x,,,false,\r\n"
+                + "Putzen,,morgen,false,\r\n"
+                + "Lesen,,,ja,\r\n";
+
+        ToDoImporter.Result result = importer.importEntries("anna", ToDoImporter.Format.CSV, stream(csv));
+
+        ArgumentCaptor<List<ToDoEntry>> saved = ArgumentCaptor.captor();
+        verify(importer.service).saveAll(eq("anna"), saved.capture());
+        ToDoEntry entry = saved.getValue().get(0);
+        assertThat(entry.getDescription()).isEqualTo("Milch, Brot\nund \"Käse\"");
+        assertThat(entry.getTags()).containsExactly("dringend", "privat");
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.rejected()).isEqualTo(3);
+        assertThat(result.errors()).containsOnlyKeys("[4].name", "[5].dueTime", "[6].done");
+    }
+
+    /**
+     * Testet, ob NDJSON blockweise gespeichert wird und kaputte Zeilen einzeln gemeldet werden.
+     */
+    @Test
+    void importNdjson_savesInChunks() throws Exception {
+        StringBuilder ndjson = new StringBuilder();
+        for (int i = 0; i < ToDoImporter.CHUNK_SIZE + 1; i++) {
+            ndjson.append("{\"name\":\"Aufgabe ").append(i).append("\"}\n");
+        }
+        ndjson.append("{kaputt\n");
+
+        ToDoImporter.Result result = importer.importEntries("anna", ToDoImporter.Format.NDJSON, stream(ndjson.toString()));
+
+        verify(importer.service, times(2)).saveAll(eq("anna"), anyList());
+        assertThat(result.imported()).isEqualTo(ToDoImporter.CHUNK_SIZE + 1);
+        assertThat(result.errors()).containsOnlyKeys("[" + (ToDoImporter.CHUNK_SIZE + 2) + "]");
+    }
+
+    /**
+     * Testet, ob eine Datei ohne eine einzige gültige Zeile als Validierungsfehler (400) abgelehnt wird.
+     */
+    @Test
+    void import_throwsBatchValidation_whenNothingValid() {
+        assertThatThrownBy(() -> importer.importEntries("anna", ToDoImporter.Format.CSV, stream("name\n\"\"\n")))
+                .isInstanceOf(BatchValidationException.class);
+        verify(importer.service, never()).saveAll(any(), anyList());
+    }
+
+    /**
+     * Testet, ob der CSV-Export Werte mit Komma korrekt quotet und der Import ihn wieder lesen kann,
+     * auch mit einer Fälligkeit in der Vergangenheit (erledigter Eintrag aus einem Backup).
+     */
+    @Test
+    void exportCsv_writesImportableRows() throws Exception {
+        ToDoEntry entry = new ToDoEntry("Einkaufen", "Milch, Brot", LocalDateTime.parse("2024-03-01T10:00"), true);
+        entry.setId(7L);
+        entry.setTags(List.of("privat"));
+        doAnswer(inv -> {
+            inv.<Consumer<ToDoEntry>>getArgument(1).accept(entry);
+            return null;
+        }).when(importer.service).streamAll(eq("anna"), any());
+        ByteArrayOutputStream out = new ByteArrayOutputStream();
+
+        importer.exportCsv("anna", out);
+
+        String csv = out.toString(StandardCharsets.UTF_8);
+        assertThat(csv).isEqualTo("id,name,description,dueTime,done,tags\r\n"
+                + "7,Einkaufen,\"Milch, Brot\",2024-03-01T10:00,true,privat\r\n");
+        ToDoImporter.Result result = importer.importEntries("anna", ToDoImporter.Format.CSV, stream(csv));
+        assertThat(result.imported()).isEqualTo(1);
+        assertThat(result.errors()).isEmpty();
+    }
+
+    private static ByteArrayInputStream stream(String content) {
+        return new ByteArrayInputStream(content.getBytes(StandardCharsets.UTF_8));
+    }
+}
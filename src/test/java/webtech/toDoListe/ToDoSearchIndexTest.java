@@ -0,0 +1,69 @@
+package webtech.toDoListe;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit-Tests für {@link ToDoSearchIndex} (ohne Spring Context).
+ */
+class ToDoSearchIndexTest {
+
+    ToDoSearchIndex index = new ToDoSearchIndex();
+
+    @BeforeEach
+    void setUp() {
+        index.load(Stream.of(
+                new Object[]{1L, "anna", 1L, "Einkaufen", "Milch und Brot"},
+                new Object[]{2L, "anna", 1L, "Milch holen", null},
+                new Object[]{3L, "ben", 1L, "Einkaufen", "Milch"}));
+    }
+
+    /**
+     * Testet, ob Präfixe gefunden werden und Treffer im Namen vor Treffern in der Beschreibung stehen.
+     */
+    @Test
+    void search_matchesPrefixesAndRanksNameFirst() {
+        assertThat(index.search("anna", "mil", 10)).containsExactly(2L, 1L);
+        assertThat(index.search("anna", "einkauf milch", 10)).containsExactly(1L);
+    }
+
+    /**
+     * Testet, ob nur die Einträge des angefragten Besitzers gefunden werden.
+     */
+    @Test
+    void search_isScopedToOwner() {
+        assertThat(index.search("ben", "einkaufen", 10)).containsExactly(3L);
+        assertThat(index.search("carl", "einkaufen", 10)).isEmpty();
+    }
+
+    /**
+     * Testet, ob Änderungen und Löschungen aus den Events in den Index übernommen werden.
+     */
+    @Test
+    void onChange_updatesAndRemovesEntries() {
+        index.onChange(ToDoChangeEvent.patched("anna", 2L, new ToDoPatch("Wasser holen", null, null, null), 2L));
+        index.onChange(ToDoChangeEvent.deleted("anna", 1L, 3L));
+
+        assertThat(index.search("anna", "milch", 10)).isEmpty();
+        assertThat(index.search("anna", "wass", 10)).containsExactly(2L);
+    }
+
+    /**
+     * Testet, ob ein älterer Stand (z.B. aus dem Aufbau) eine neuere Änderung nicht überschreibt.
+     */
+    @Test
+    void index_ignoresOlderChanges() {
+        ToDoEntry newer = new ToDoEntry("Zahnarzt", null, null, false);
+        newer.setId(2L);
+        newer.setOwner("anna");
+        newer.setChangeSeq(5L);
+        index.onChange(ToDoChangeEvent.updated(newer));
+        index.onChange(ToDoChangeEvent.patched("anna", 2L, new ToDoPatch("Milch holen", null, null, null), 4L));
+
+        assertThat(index.search("anna", "zahn", 10)).containsExactly(2L);
+    }
+}
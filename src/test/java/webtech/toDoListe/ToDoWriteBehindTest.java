@@ -0,0 +1,148 @@
+package webtech.toDoListe;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.*;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyMap;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.*;
+
+/**
+ * Unit-Tests für {@link ToDoWriteBehind} mit echtem Log in einem temporären Verzeichnis.
+ */
+class ToDoWriteBehindTest {
+
+    @TempDir
+    Path dir;
+
+    private ToDoWriteBehind start() throws Exception {
+        ToDoWriteBehind writeBehind = new ToDoWriteBehind(true, dir, ToDoWriteBehind.Durability.FSYNC);
+        writeBehind.service = mock(ToDoEntryService.class);
+        writeBehind.recover();
+        return writeBehind;
+    }
+
+    /**
+     * Testet, ob mehrere Umschaltungen derselben ID zu einem Wert zusammengefasst
+     * und mit einem Aufruf je Besitzer geschrieben werden.
+     */
+    @Test
+    void flush_coalescesTogglesPerId() throws Exception {
+        ToDoWriteBehind writeBehind = start();
+        writeBehind.append("anna", 1L, true);
+        writeBehind.append("anna", 1L, false);
+        writeBehind.append("anna", 2L, true);
+
+        assertThat(writeBehind.pendingDone(1L)).isFalse();
+
+        writeBehind.flush();
+
+        verify(writeBehind.service, times(1)).applyDone("anna", Map.of(1L, false, 2L, true));
+        assertThat(writeBehind.pendingDone(1L)).isNull();
+    }
+
+    /**
+     * Testet, ob nach einem Absturz ohne Flush die bestätigten Umschaltungen
+     * beim nächsten Start aus dem Log eingespielt werden, verworfene aber nicht.
+     */
+    @Test
+    void recover_replaysLogAfterCrash() throws Exception {
+        ToDoWriteBehind crashed = start();
+        crashed.append("anna", 1L, true);
+        crashed.append("anna", 2L, true);
+        crashed.discard("anna", 2L);
+        // kein flush und kein shutdown: Prozess "stirbt" hier
+
+        ToDoWriteBehind restarted = start();
+
+        verify(restarted.service).applyDone("anna", Map.of(1L, true));
+    }
+
+    /**
+     * Testet, ob fehlgeschlagene Umschaltungen ausstehend bleiben und beim nächsten Flush erneut versucht werden.
+     */
+    @Test
+    void flush_keepsTogglesWhenDatabaseFails() throws Exception {
+        ToDoWriteBehind writeBehind = start();
+        when(writeBehind.service.applyDone(any(), anyMap()))
+                .thenThrow(new RuntimeException("DB weg"))
+                .thenReturn(1);
+        writeBehind.append("anna", 1L, true);
+
+        writeBehind.flush();
+        assertThat(writeBehind.pendingDone(1L)).isTrue();
+
+        writeBehind.flush();
+        assertThat(writeBehind.pendingDone(1L)).isNull();
+        verify(writeBehind.service, times(2)).applyDone("anna", Map.of(1L, true));
+    }
+
+    /**
+     * Testet, ob ein synchroner Schreibzugriff, der während eines laufenden Flushs kommt, die Umschaltung
+     * aus dem Flush nimmt: applyDone sieht die ID danach nicht mehr als inFlight und schreibt sie nicht.
+     */
+    @Test
+    void discard_duringFlush_removesToggleFromRunningBatch() throws Exception {
+        ToDoWriteBehind writeBehind = start();
+        writeBehind.append("anna", 1L, true);
+        writeBehind.append("anna", 2L, true);
+        when(writeBehind.service.applyDone(eq("anna"), anyMap())).thenAnswer(inv -> {
+            // während der Flush läuft: die Umschaltung ist noch sichtbar, dann kommt ein PUT auf ID 1
+            assertThat(writeBehind.pendingDone(1L)).isTrue();
+            assertThat(writeBehind.discard("anna", 1L)).isTrue();
+            // so prüft applyDone nach dem Sperren der Zeilen
+            assertThat(writeBehind.stillInFlight(List.of(1L, 2L))).containsExactly(2L);
+            return 1;
+        });
+
+        writeBehind.flush();
+
+        assertThat(writeBehind.pendingDone(1L)).isNull();
+        assertThat(writeBehind.hasPending("anna")).isFalse();
+    }
+
+    /**
+     * Testet, ob hasPending je Besitzer zählt und nach Flush bzw. discard wieder false ist.
+     */
+    @Test
+    void hasPending_tracksTogglesPerOwner() throws Exception {
+        ToDoWriteBehind writeBehind = start();
+        writeBehind.append("anna", 1L, true);
+        writeBehind.append("anna", 1L, false);
+        writeBehind.append("ben", 2L, true);
+
+        assertThat(writeBehind.hasPending("anna")).isTrue();
+        writeBehind.discard("anna", 1L);
+        assertThat(writeBehind.hasPending("anna")).isFalse();
+        assertThat(writeBehind.hasPending("ben")).isTrue();
+
+        writeBehind.flush();
+        assertThat(writeBehind.hasPending("ben")).isFalse();
+    }
+
+    /**
+     * Testet, ob discard eines fremden Besitzers die bestätigte Umschaltung stehen lässt
+     * und die Zählung für hasPending nicht verfälscht.
+     */
+    @Test
+    void discard_ignoresToggleOfOtherOwner() throws Exception {
+        ToDoWriteBehind writeBehind = start();
+        writeBehind.append("ben", 2L, true);
+
+        assertThat(writeBehind.discard("anna", 2L)).isNull();
+
+        assertThat(writeBehind.pendingDone(2L)).isTrue();
+        assertThat(writeBehind.hasPending("anna")).isFalse();
+        assertThat(writeBehind.hasPending("ben")).isTrue();
+
+        writeBehind.flush();
+        verify(writeBehind.service).applyDone("ben", Map.of(2L, true));
+        assertThat(writeBehind.hasPending("ben")).isFalse();
+    }
+}
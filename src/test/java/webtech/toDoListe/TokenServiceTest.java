@@ -0,0 +1,73 @@
+package webtech.toDoListe;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.Duration;
+
+import static org.assertj.core.api.Assertions.*;
+
+/**
+ * Unit-Tests für {@link TokenService} (ohne Spring Context).
+ */
+class TokenServiceTest {
+
+    TokenService tokens = new TokenService("test-secret", Duration.ofHours(1));
+
+    /**
+     * Testet, ob ein ausgestelltes Token gültig ist und den Benutzernamen enthält.
+     */
+    @Test
+    void issuedToken_validatesToUser() {
+        AuthToken token = tokens.validate(tokens.issue("testuser"));
+
+        assertThat(token).isNotNull();
+        assertThat(token.username()).isEqualTo("testuser");
+    }
+
+    /**
+     * Testet, ob ein Token mit verändertem Inhalt abgelehnt wird.
+     */
+    @Test
+    void tamperedToken_isRejected() {
+        String token = tokens.issue("testuser");
+        String other = tokens.issue("admin");
+        String forged = other.substring(0, other.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        assertThat(tokens.validate(forged)).isNull();
+        assertThat(tokens.validate("kein-token")).isNull();
+    }
+
+    /**
+     * Testet, ob ein Token mit anderem Schlüssel signiert ungültig ist.
+     */
+    @Test
+    void tokenFromOtherSecret_isRejected() {
+        TokenService other = new TokenService("anderes-secret", Duration.ofHours(1));
+
+        assertThat(tokens.validate(other.issue("testuser"))).isNull();
+    }
+
+    /**
+     * Testet, ob ein abgelaufenes Token abgelehnt wird.
+     */
+    @Test
+    void expiredToken_isRejected() {
+        TokenService shortLived = new TokenService("test-secret", Duration.ofSeconds(-1));
+
+        assertThat(tokens.validate(shortLived.issue("testuser"))).isNull();
+    }
+
+    /**
+     * Testet, ob ein widerrufenes Token abgelehnt wird, andere Tokens aber gültig bleiben.
+     */
+    @Test
+    void revokedToken_isRejected() {
+        String first = tokens.issue("testuser");
+        String second = tokens.issue("testuser");
+
+        tokens.revoke(tokens.validate(first));
+
+        assertThat(tokens.validate(first)).isNull();
+        assertThat(tokens.validate(second)).isNotNull();
+    }
+}